@@ -0,0 +1,465 @@
+/**
+* Reads the CGATS text files that ArgyllCMS writes (.ti1 test charts, .ti3 measurements 
+* and .cal calibration curves, like the ones in DisplayMeasurement). A file holds one or
+* more tables, each with a type line (such as CTI3 or CAL), keywords with values, the 
+* names of its fields between BEGIN_DATA_FORMAT and END_DATA_FORMAT, and its rows 
+* between BEGIN_DATA and END_DATA. 
+* 
+* The file is read through once, byte by byte, and the data values are parsed straight
+* into one double array per field, without making a String for each value, so a .ti3 
+* with hundreds of rows of over a hundred spectral values reads in a few milliseconds. 
+* Values that are not numbers (such as text sample names) are kept as Strings and read
+* as NaN. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CGATSReader {
+	
+	/**
+	* One table of a CGATS file. The data is stored by field: column(f)[row]. 
+	*/
+	public static class Table {
+		public final String type;
+		public final Map<String, String> keywords;
+		public final String[] fields;
+		public final int rows;
+		private final double[][] columns;
+		private final String[][] text;
+		
+		Table(String type, Map<String, String> keywords, String[] fields, int rows, double[][] columns, String[][] text) {
+			this.type = type;
+			this.keywords = Collections.unmodifiableMap(keywords);
+			this.fields = fields;
+			this.rows = rows;
+			this.columns = columns;
+			this.text = text;
+		}
+		
+		/**
+		* @param field The name of a field 
+		* @return Its index, or -1 if the table does not have it 
+		*/
+		public int fieldIndex(String field) {
+			for(int f = 0; f < fields.length; f++) {
+				if(fields[f].equals(field)) {
+					return f;
+				}
+			}
+			return -1;
+		}
+		
+		/**
+		* @param field The name of a field 
+		* @return true if the table has the field 
+		*/
+		public boolean hasField(String field) {
+			return fieldIndex(field) >= 0;
+		}
+		
+		/**
+		* Gets the values of a field. The array belongs to the table and should not be changed. 
+		* 
+		* @param field The name of the field 
+		* @return The value of the field in each row 
+		*/
+		public double[] column(String field) {
+			int f = fieldIndex(field);
+			if(f < 0) {
+				throw new IllegalArgumentException("No field " + field + " in " + type + " table");
+			}
+			return columns[f];
+		}
+		
+		/**
+		* Gets the values of a field. The array belongs to the table and should not be changed. 
+		* 
+		* @param f The index of the field 
+		* @return The value of the field in each row 
+		*/
+		public double[] column(int f) {
+			return columns[f];
+		}
+		
+		/**
+		* Gets a value as it was written in the file 
+		* 
+		* @param row The row 
+		* @param f The index of the field 
+		* @return The value as text 
+		*/
+		public String text(int row, int f) {
+			if(text[f] != null && text[f][row] != null) {
+				return text[f][row];
+			}
+			return Double.toString(columns[f][row]);
+		}
+		
+		/**
+		* @param name The name of a keyword 
+		* @return Its value, without quotes, or null if the table does not have it 
+		*/
+		public String keyword(String name) {
+			return keywords.get(name);
+		}
+		
+		/**
+		* Gets the numbers in a keyword's value, such as "54.8 57.8 61.8" 
+		* 
+		* @param name The name of the keyword 
+		* @return The numbers, or null if the table does not have the keyword 
+		*/
+		public double[] keywordNumbers(String name) {
+			String value = keywords.get(name);
+			if(value == null) {
+				return null;
+			}
+			String[] parts = value.trim().split("\\s+");
+			double[] numbers = new double[parts.length];
+			for(int i = 0; i < parts.length; i++) {
+				numbers[i] = Double.parseDouble(parts[i]);
+			}
+			return numbers;
+		}
+	}
+	
+	private static final int EOF = -1;
+	private static final int NEWLINE = 0;
+	private static final int WORD = 1;
+	private static final int QUOTED = 2;
+	
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for(int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+	
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int pos;
+	private int end;
+	// The current token 
+	private byte[] token = new byte[64];
+	private int length;
+	
+	private CGATSReader(InputStream in) {
+		this.in = in;
+	}
+	
+	/**
+	* Reads every table in a CGATS file 
+	* 
+	* @param file The file 
+	* @return The tables, in the order they are in the file 
+	*/
+	public static List<Table> read(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return read(in);
+		} catch(IOException e) {
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	* Reads every table from a stream of a CGATS file 
+	* 
+	* @param in The stream 
+	* @return The tables, in the order they are in the stream 
+	*/
+	public static List<Table> read(InputStream in) throws IOException {
+		return new CGATSReader(in).readTables();
+	}
+	
+	/**
+	* Reads the first table in a CGATS file 
+	* 
+	* @param file The file 
+	* @return The first table 
+	*/
+	public static Table readFirst(File file) throws IOException {
+		List<Table> tables = read(file);
+		if(tables.isEmpty()) {
+			throw new IOException(file + " has no CGATS tables");
+		}
+		return tables.get(0);
+	}
+	
+	private List<Table> readTables() throws IOException {
+		List<Table> tables = new ArrayList<Table>();
+		while(true) {
+			int kind = skipNewlines();
+			if(kind == EOF) {
+				return tables;
+			}
+			tables.add(readTable(tokenString()));
+		}
+	}
+	
+	// Reads the rest of a table after its type line 
+	private Table readTable(String type) throws IOException {
+		Map<String, String> keywords = new LinkedHashMap<String, String>();
+		String[] fields = null;
+		int sets = -1;
+		while(true) {
+			int kind = skipNewlines();
+			if(kind == EOF) {
+				throw new IOException("The " + type + " table has no data");
+			}
+			String name = tokenString();
+			if(name.equals("BEGIN_DATA_FORMAT")) {
+				List<String> names = new ArrayList<String>();
+				while((kind = skipNewlines()) != EOF && !tokenIs("END_DATA_FORMAT")) {
+					names.add(tokenString());
+				}
+				fields = names.toArray(new String[names.size()]);
+			} else if(name.equals("BEGIN_DATA")) {
+				if(fields == null) {
+					throw new IOException("The " + type + " table has data before its data format");
+				}
+				return readData(type, keywords, fields, sets);
+			} else {
+				// A keyword and its value, which is the rest of the line 
+				StringBuilder value = new StringBuilder();
+				while((kind = nextToken()) != NEWLINE && kind != EOF) {
+					if(value.length() > 0) {
+						value.append(' ');
+					}
+					value.append(tokenString());
+				}
+				if(name.equals("NUMBER_OF_SETS")) {
+					sets = Integer.parseInt(value.toString().trim());
+				} else if(!name.equals("KEYWORD")) {
+					keywords.put(name, value.toString());
+				}
+			}
+		}
+	}
+	
+	private Table readData(String type, Map<String, String> keywords, String[] fields, int sets) throws IOException {
+		int nf = fields.length;
+		double[][] columns = new double[nf][Math.max(sets, 16)];
+		String[][] text = new String[nf][];
+		int row = 0;
+		int f = 0;
+		while(true) {
+			int kind = nextToken();
+			if(kind == EOF) {
+				throw new IOException("The " + type + " table has no END_DATA");
+			}
+			if(kind == NEWLINE) {
+				continue;
+			}
+			if(kind == WORD && tokenIs("END_DATA")) {
+				break;
+			}
+			if(row == columns[0].length) {
+				for(int i = 0; i < nf; i++) {
+					columns[i] = Arrays.copyOf(columns[i], 2*row);
+					if(text[i] != null) {
+						text[i] = Arrays.copyOf(text[i], 2*row);
+					}
+				}
+			}
+			double value = kind == WORD ? parseNumber() : Double.NaN;
+			if(Double.isNaN(value)) {
+				if(text[f] == null) {
+					text[f] = new String[columns[f].length];
+				}
+				text[f][row] = tokenString();
+			}
+			columns[f][row] = value;
+			if(++f == nf) {
+				f = 0;
+				row++;
+			}
+		}
+		if(f != 0) {
+			throw new IOException("The last row of the " + type + " table is not complete");
+		}
+		if(sets >= 0 && row != sets) {
+			throw new IOException("The " + type + " table should have " + sets + " rows but has " + row);
+		}
+		for(int i = 0; i < nf; i++) {
+			if(columns[i].length != row) {
+				columns[i] = Arrays.copyOf(columns[i], row);
+			}
+			if(text[i] != null && text[i].length != row) {
+				text[i] = Arrays.copyOf(text[i], row);
+			}
+		}
+		return new Table(type, keywords, fields, row, columns, text);
+	}
+	
+	private int skipNewlines() throws IOException {
+		int kind = nextToken();
+		while(kind == NEWLINE) {
+			kind = nextToken();
+		}
+		return kind;
+	}
+	
+	private int read() throws IOException {
+		if(pos == end) {
+			end = in.read(buffer, 0, buffer.length);
+			pos = 0;
+			if(end <= 0) {
+				end = 0;
+				return -1;
+			}
+		}
+		return buffer[pos++] & 0xFF;
+	}
+	
+	private void unread() {
+		pos--;
+	}
+	
+	// Reads the next token into the token array: a word, a quoted string (without 
+	// its quotes) or the end of a line. Comments from # to the end of the line are skipped. 
+	private int nextToken() throws IOException {
+		length = 0;
+		int c;
+		do {
+			c = read();
+		} while(c == ' ' || c == '\t' || c == '\r');
+		if(c < 0) {
+			return EOF;
+		}
+		if(c == '\n') {
+			return NEWLINE;
+		}
+		if(c == '#') {
+			do {
+				c = read();
+			} while(c >= 0 && c != '\n');
+			return c < 0 ? EOF : NEWLINE;
+		}
+		if(c == '"') {
+			while((c = read()) >= 0 && c != '"') {
+				append(c);
+			}
+			return QUOTED;
+		}
+		while(c >= 0 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+			append(c);
+			c = read();
+		}
+		if(c >= 0) {
+			unread();
+		}
+		return WORD;
+	}
+	
+	private void append(int c) {
+		if(length == token.length) {
+			token = Arrays.copyOf(token, 2*length);
+		}
+		token[length++] = (byte)c;
+	}
+	
+	private boolean tokenIs(String s) {
+		if(s.length() != length) {
+			return false;
+		}
+		for(int i = 0; i < length; i++) {
+			if(token[i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private String tokenString() {
+		return new String(token, 0, length, StandardCharsets.ISO_8859_1);
+	}
+	
+	// Parses the token as a decimal number, or returns NaN if it is not one. Numbers 
+	// with at most 15 significant digits and a small exponent are exactly representable 
+	// as mantissa * 10^exponent with one correctly rounded multiply or divide, which is
+	// what Double.parseDouble would give; anything else is handed to it. 
+	private double parseNumber() {
+		int i = 0;
+		boolean negative = false;
+		if(i < length && (token[i] == '-' || token[i] == '+')) {
+			negative = token[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean any = false;
+		boolean point = false;
+		for(; i < length; i++) {
+			int c = token[i];
+			if(c >= '0' && c <= '9') {
+				any = true;
+				if(mantissa == 0 && c == '0') {
+					// Leading zeros do not count towards the significant digits 
+					if(point) {
+						scale--;
+					}
+					continue;
+				}
+				if(digits < 18) {
+					mantissa = mantissa*10 + (c - '0');
+					digits++;
+					if(point) {
+						scale--;
+					}
+				} else if(!point) {
+					scale++;
+					digits++;
+				} else {
+					digits++;
+				}
+			} else if(c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if(!any) {
+			return Double.NaN;
+		}
+		if(i < length && (token[i] == 'e' || token[i] == 'E')) {
+			i++;
+			boolean expNegative = false;
+			if(i < length && (token[i] == '-' || token[i] == '+')) {
+				expNegative = token[i] == '-';
+				i++;
+			}
+			int exp = 0;
+			boolean expDigits = false;
+			for(; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+				exp = Math.min(100000, exp*10 + (token[i] - '0'));
+				expDigits = true;
+			}
+			if(!expDigits) {
+				return Double.NaN;
+			}
+			scale += expNegative ? -exp : exp;
+		}
+		if(i != length) {
+			return Double.NaN;
+		}
+		if(digits > 15 || scale < -22 || scale > 22) {
+			return Double.parseDouble(tokenString());
+		}
+		double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+		return negative ? -value : value;
+	}
+}
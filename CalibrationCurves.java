@@ -0,0 +1,127 @@
+/**
+* The video card calibration curves (the video LUT) that are loaded while a display is
+* calibrated: for each code value the program draws, the value the video card actually
+* sends to the display. They are read from an ArgyllCMS .cal file (the RGB_I, RGB_R,
+* RGB_G and RGB_B fields) or from the vcgt tag of an ICC profile, like the ones in
+* DisplayMeasurement.
+* 
+* While calibration is active, what the display shows for a code is its own transfer
+* function applied to the calibrated code. applyTo works that out for all 256 codes of
+* each channel once, into a LUTTransfer, so a converter using the calibration costs
+* no more per conversion than one without it.
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class CalibrationCurves {
+	
+	// The calibrated output of each code, from 0 to 1, curves[256*channel + code]
+	private final double[] curves;
+	
+	/**
+	* Constructor for CalibrationCurves
+	* 
+	* @param red The calibrated output of each of the 256 red codes, from 0 to 1
+	* @param green The calibrated output of each of the 256 green codes, from 0 to 1
+	* @param blue The calibrated output of each of the 256 blue codes, from 0 to 1
+	*/
+	public CalibrationCurves(double[] red, double[] green, double[] blue) {
+		double[][] channels = {red, green, blue};
+		curves = new double[3*256];
+		for(int c = 0; c < 3; c++) {
+			if(channels[c].length != 256) {
+				throw new IllegalArgumentException("Need 256 values for each channel");
+			}
+			for(int code = 0; code < 256; code++) {
+				curves[256*c + code] = Math.min(Math.max(channels[c][code], 0), 1);
+			}
+		}
+	}
+	
+	/**
+	* Loads the calibration curves from an ArgyllCMS .cal file. Files with any number of
+	* rows are resampled to the 256 code values.
+	* 
+	* @param calFile The name of the .cal file
+	* @return The calibration curves
+	*/
+	public static CalibrationCurves load(String calFile) throws IOException {
+		List<CGATSReader.Table> tables = CGATSReader.read(new File(calFile));
+		for(CGATSReader.Table t : tables) {
+			if(t.hasField("RGB_I") && t.hasField("RGB_R") && t.hasField("RGB_G") && t.hasField("RGB_B")) {
+				double[] in = t.column("RGB_I");
+				return new CalibrationCurves(
+					resample(in, t.column("RGB_R")),
+					resample(in, t.column("RGB_G")),
+					resample(in, t.column("RGB_B")));
+			}
+		}
+		throw new IOException(calFile + " has no RGB_I, RGB_R, RGB_G and RGB_B table");
+	}
+	
+	/**
+	* Curves that leave every code as it is, for when no calibration is loaded
+	* 
+	* @return The identity curves
+	*/
+	public static CalibrationCurves identity() {
+		double[] ramp = new double[256];
+		for(int code = 0; code < 256; code++) {
+			ramp[code] = code / 255.0;
+		}
+		return new CalibrationCurves(ramp, ramp, ramp);
+	}
+	
+	/**
+	* @param code The code value in the range [0,255]
+	* @param channel 0 for red, 1 for green, 2 for blue
+	* @return The value the video card sends for the code, from 0 to 1
+	*/
+	public double output(int code, int channel) {
+		return curves[256*channel + code];
+	}
+	
+	/**
+	* Works out the transfer function of the display while this calibration is loaded:
+	* each code goes through the calibration curve, then through the display's own
+	* transfer function, which should have been measured without any calibration loaded.
+	* 
+	* @param display The transfer function of the uncalibrated display
+	* @return The transfer function of the calibrated display, as a single LUT
+	*/
+	public LUTTransfer applyTo(TransferFunction display) {
+		double[][] fused = new double[3][256];
+		for(int c = 0; c < 3; c++) {
+			for(int code = 0; code < 256; code++) {
+				fused[c][code] = display.uncompressFraction(255*curves[256*c + code], c);
+			}
+		}
+		return new LUTTransfer(fused[0], fused[1], fused[2]);
+	}
+	
+	// Interpolates the curve (in[i], out[i]) at each code value; in must increase
+	static double[] resample(double[] in, double[] out) throws IOException {
+		if(in.length < 2 || out.length != in.length) {
+			throw new IOException("A calibration curve needs at least two points");
+		}
+		double[] values = new double[256];
+		int i = 0;
+		for(int code = 0; code < 256; code++) {
+			double x = code / 255.0;
+			while(i < in.length - 2 && in[i + 1] < x) {
+				i++;
+			}
+			double span = in[i + 1] - in[i];
+			if(!(span > 0)) {
+				throw new IOException("Calibration curve inputs must increase");
+			}
+			double t = Math.min(Math.max((x - in[i]) / span, 0), 1);
+			values[code] = out[i] + t*(out[i + 1] - out[i]);
+		}
+		return values;
+	}
+}
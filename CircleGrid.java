@@ -0,0 +1,153 @@
+/**
+* A uniform grid of circles used while a layout is being made. The grid covers the
+* square from (-1,-1) to (1,1) with square buckets twice the size of the largest
+* radius, so a circle can only touch circles in its own bucket or the eight around it:
+*  | 0 | 1 | 2 |
+*  | 3 | 4 | 5 |
+*  | 6 | 7 | 8 |
+* Each bucket is a linked list through the circle arrays: head holds the last circle
+* added to each bucket (or -1), and next holds the circle added to the same bucket
+* before each circle. The arrays only grow by doubling, so adding a circle does not
+* usually allocate anything. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.Arrays;
+
+public class CircleGrid {
+	
+	private final double bucketSize;
+	private final int rows;
+	private final int[] head;
+	private int n;
+	private double[] x;
+	private double[] y;
+	private double[] r;
+	private int[] next;
+	private int[] bucketOf;
+	
+	/**
+	* Constructor for an empty CircleGrid
+	* 
+	* @param maxR The largest radius any circle in the grid (or checked against it) will have 
+	*/
+	public CircleGrid(double maxR) {
+		this.bucketSize = 2*maxR;
+		this.rows = (int)Math.ceil(2/bucketSize);
+		this.head = new int[rows*rows];
+		Arrays.fill(head, -1);
+		int capacity = 256;
+		x = new double[capacity];
+		y = new double[capacity];
+		r = new double[capacity];
+		next = new int[capacity];
+		bucketOf = new int[capacity];
+	}
+	
+	/**
+	* @return The number of circles in the grid 
+	*/
+	public int size() {
+		return n;
+	}
+	
+	/**
+	* @param i The number of a circle, in the order it was added
+	* @return The x coordinate of the circle's center 
+	*/
+	public double x(int i) {
+		return x[i];
+	}
+	
+	/**
+	* @param i The number of a circle, in the order it was added
+	* @return The y coordinate of the circle's center 
+	*/
+	public double y(int i) {
+		return y[i];
+	}
+	
+	/**
+	* @param i The number of a circle, in the order it was added
+	* @return The radius of the circle 
+	*/
+	public double r(int i) {
+		return r[i];
+	}
+	
+	/**
+	* Shrinks a new circle so that it does not overlap any circle in the grid. If it overlaps
+	* a circle, its radius is decreased by the distance they overlap. Squared distances are 
+	* compared so the square root is only taken for overlapping circles. The radius only 
+	* ever shrinks, so the search stops as soon as it is smaller than minR. 
+	* 
+	* @param cx The x coordinate of the new circle's center
+	* @param cy The y coordinate of the new circle's center
+	* @param radius The radius the new circle would like to have
+	* @param minR The smallest radius that is still useful 
+	* @return The largest radius (up to the given one) that overlaps nothing, or some value below minR 
+	*/
+	public double fit(double cx, double cy, double radius, double minR) {
+		int b = CircleLayout.bucket(cx, cy, bucketSize, rows);
+		int col = b % rows;
+		int row = b / rows;
+		for(int dy = -1; dy <= 1; dy++) {
+			// If it is not a valid row, go to the next one
+			if(row + dy < 0 || row + dy >= rows) { continue; }
+			
+			for(int dx = -1; dx <= 1; dx++) {
+				// If it is not a valid column, go to the next one
+				if(col + dx < 0 || col + dx >= rows) { continue; }
+				
+				for(int c = head[(col + dx) + (row + dy)*rows]; c >= 0; c = next[c]) {
+					double ddx = cx - x[c];
+					double ddy = cy - y[c];
+					double dSquared = ddx*ddx + ddy*ddy;
+					double reach = radius + r[c];
+					if(reach > 0 && dSquared < reach*reach) {
+						radius = Math.sqrt(dSquared) - r[c];
+						if(radius < minR) { return radius; }
+					}
+				}
+			}
+		}
+		return radius;
+	}
+	
+	/**
+	* Adds a circle to the grid. The caller is responsible for making sure it fits. 
+	* 
+	* @param cx The x coordinate of the circle's center
+	* @param cy The y coordinate of the circle's center
+	* @param radius The radius of the circle 
+	*/
+	public void add(double cx, double cy, double radius) {
+		if(n == x.length) {
+			int capacity = 2*n;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			r = Arrays.copyOf(r, capacity);
+			next = Arrays.copyOf(next, capacity);
+			bucketOf = Arrays.copyOf(bucketOf, capacity);
+		}
+		int b = CircleLayout.bucket(cx, cy, bucketSize, rows);
+		x[n] = cx;
+		y[n] = cy;
+		r[n] = radius;
+		bucketOf[n] = b;
+		next[n] = head[b];
+		head[b] = n;
+		n++;
+	}
+	
+	/**
+	* Groups the circles by bucket into a CircleLayout. The grid can keep being used 
+	* afterwards; the layout does not share its arrays. 
+	* 
+	* @return The layout of the circles in the grid 
+	*/
+	public CircleLayout toLayout() {
+		return CircleLayout.group(n, x, y, r, bucketOf, bucketSize, rows);
+	}
+}
@@ -0,0 +1,206 @@
+/**
+* A layout of circles that fill a larger circle, stored as parallel arrays rather 
+* than as Circle objects. Circle i is centered at (x[i], y[i]) and has radius r[i]. 
+* The circles are grouped by the square bucket of a uniform grid that their centers 
+* fall into: the circles in bucket b are numbered bucketStart[b] up to (but not 
+* including) bucketStart[b+1]. Buckets are numbered column + row*rows, where the grid
+* covers the square from (-1,-1) to (1,1). Everything is primitive, so walking the 
+* circles (or the circles near a point) touches a few contiguous arrays. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CircleLayout implements CircleSet {
+	static final double TOLERANCE = 1e-9;
+	
+	public final int n;
+	public final double[] x;
+	public final double[] y;
+	public final double[] r;
+	public final double bucketSize;
+	public final int rows;
+	public final int[] bucketStart;
+	
+	/**
+	* Constructor for a CircleLayout. The arrays are used as they are, not copied. 
+	* 
+	* @param n The number of circles
+	* @param x The x coordinates of the centers, grouped by bucket
+	* @param y The y coordinates of the centers, grouped by bucket
+	* @param r The radii, grouped by bucket
+	* @param bucketSize The width of each bucket 
+	* @param rows The number of rows (and columns) of buckets
+	* @param bucketStart The index of the first circle in each bucket, followed by n 
+	*/
+	public CircleLayout(int n, double[] x, double[] y, double[] r, double bucketSize, int rows, int[] bucketStart) {
+		this.n = n;
+		this.x = x;
+		this.y = y;
+		this.r = r;
+		this.bucketSize = bucketSize;
+		this.rows = rows;
+		this.bucketStart = bucketStart;
+	}
+	
+	/**
+	* Builds a layout from a list of Circle objects. The bucket size is twice the
+	* largest radius, so a circle can only touch circles in its own or neighboring buckets. 
+	* 
+	* @param circles The circles to store
+	* @return The layout holding the same circles 
+	*/
+	public static CircleLayout fromCircles(List<Circle> circles) {
+		int n = circles.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] r = new double[n];
+		double maxR = 0;
+		for(int i = 0; i < n; i++) {
+			Circle c = circles.get(i);
+			x[i] = c.x;
+			y[i] = c.y;
+			r[i] = c.r;
+			maxR = Math.max(maxR, c.r);
+		}
+		// Avoid a zero bucket size for an empty layout 
+		double bucketSize = maxR > 0 ? 2*maxR : 2.0;
+		int rows = (int)Math.ceil(2/bucketSize);
+		int[] bucketOf = new int[n];
+		for(int i = 0; i < n; i++) {
+			bucketOf[i] = bucket(x[i], y[i], bucketSize, rows);
+		}
+		return group(n, x, y, r, bucketOf, bucketSize, rows);
+	}
+	
+	/**
+	* Groups circles by bucket with a counting sort, keeping circles in the same bucket 
+	* in the order they were given 
+	* 
+	* @param n The number of circles
+	* @param x The x coordinates of the centers
+	* @param y The y coordinates of the centers
+	* @param r The radii
+	* @param bucketOf The bucket each circle is in
+	* @param bucketSize The width of each bucket 
+	* @param rows The number of rows (and columns) of buckets
+	* @return The layout with the circles grouped by bucket 
+	*/
+	static CircleLayout group(int n, double[] x, double[] y, double[] r, int[] bucketOf, double bucketSize, int rows) {
+		int[] bucketStart = new int[rows*rows + 1];
+		for(int i = 0; i < n; i++) {
+			bucketStart[bucketOf[i] + 1]++;
+		}
+		for(int b = 0; b < rows*rows; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		
+		int[] fill = new int[rows*rows];
+		double[] gx = new double[n];
+		double[] gy = new double[n];
+		double[] gr = new double[n];
+		for(int i = 0; i < n; i++) {
+			int j = bucketStart[bucketOf[i]] + fill[bucketOf[i]]++;
+			gx[j] = x[i];
+			gy[j] = y[i];
+			gr[j] = r[i];
+		}
+		return new CircleLayout(n, gx, gy, gr, bucketSize, rows, bucketStart);
+	}
+	
+	/**
+	* Finds the bucket a point falls into 
+	* 
+	* @param x The x coordinate of the point, in [-1,1]
+	* @param y The y coordinate of the point, in [-1,1]
+	* @param bucketSize The width of each bucket
+	* @param rows The number of rows (and columns) of buckets 
+	* @return The bucket number, column + row*rows 
+	*/
+	static int bucket(double x, double y, double bucketSize, int rows) {
+		int col = Math.min((int)((x + 1.0) / bucketSize), rows - 1);
+		int row = Math.min((int)((y + 1.0) / bucketSize), rows - 1);
+		return Math.max(col, 0) + Math.max(row, 0)*rows;
+	}
+	
+	public int size() {
+		return n;
+	}
+	
+	public double x(int i) {
+		return x[i];
+	}
+	
+	public double y(int i) {
+		return y[i];
+	}
+	
+	public double r(int i) {
+		return r[i];
+	}
+	
+	/**
+	* Checks that the layout is usable: every circle is inside the larger circle, 
+	* and no two circles overlap. Only neighboring buckets are searched, so this 
+	* only works if the bucket size is at least twice the largest radius. The makers
+	* shrink circles until they just touch their neighbors, so rounding errors up to
+	* TOLERANCE are allowed. 
+	* 
+	* @return true if the layout is valid, false otherwise 
+	*/
+	public boolean isValid() {
+		for(int i = 0; i < n; i++) {
+			if(Math.sqrt(x[i]*x[i] + y[i]*y[i]) + r[i] > 1.0 + TOLERANCE || 2*r[i] > bucketSize) {
+				return false;
+			}
+			int b = bucket(x[i], y[i], bucketSize, rows);
+			int col = b % rows;
+			int row = b / rows;
+			for(int dy = -1; dy <= 1; dy++) {
+				if(row + dy < 0 || row + dy >= rows) { continue; }
+				for(int dx = -1; dx <= 1; dx++) {
+					if(col + dx < 0 || col + dx >= rows) { continue; }
+					int other = (col + dx) + (row + dy)*rows;
+					for(int j = bucketStart[other]; j < bucketStart[other + 1]; j++) {
+						double ddx = x[i] - x[j];
+						double ddy = y[i] - y[j];
+						double reach = r[i] + r[j] - TOLERANCE;
+						if(j != i && ddx*ddx + ddy*ddy < reach*reach) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	* Copies the layout into Circle objects, in the same order 
+	* 
+	* @return an ArrayList of Circle objects
+	*/
+	public ArrayList<Circle> toCircles() {
+		ArrayList<Circle> circles = new ArrayList<Circle>(n);
+		for(int i = 0; i < n; i++) {
+			circles.add(new Circle(x[i], y[i], r[i]));
+		}
+		return circles;
+	}
+	
+	/**
+	* Gets the ratio of the total area of the circles to the area of the circle they fill 
+	* 
+	* @return The fill ratio 
+	*/
+	public double fillRatio() {
+		// The area to fill is pi, so the pi in each circle's area cancels out 
+		double area = 0;
+		for(int i = 0; i < n; i++) {
+			area += r[i]*r[i];
+		}
+		return area;
+	}
+}
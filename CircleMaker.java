@@ -1,22 +1,64 @@
 /**
-* This class creates an ArrayList of Circle objects that represent
-* a collection of circles which fill a larger circle. The location and radii
+* This class creates layouts of circles which fill a larger circle, either as 
+* a CircleLayout or as an ArrayList of Circle objects. The location and radii
 * of the circles are chosen randomly, though no two circles touch. 
 * 
+* A CircleMaker keeps no state between layouts, so one instance can make any
+* number of layouts, from any number of threads. Each layout is made from a
+* seed, and the same seed always gives the same layout. 
+* 
+* A layout stops when it reaches the target ratio, or when the larger circle is as full 
+* as it will get: MAX_FAILURES random circles in a row that find no room, or MAX_ATTEMPTS 
+* circles in all. A target ratio the radii cannot reach gives the fullest layout found 
+* in that time rather than never finishing. 
+* 
 * @author Bo Brinkman and Caroline Danzi
-* @version 2017-03-11
+* @version 2026-10-18
 */
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class CircleMaker {
     static final int MAX_N = 10000;
-    static int n = 0;
     static final double MIN_R = 1/80.0;
     static final double MAX_R = 1/20.0;
     static final double FILL_AREA = Math.PI;
-    static double area = 0.0;
     static final double TARGET_RATIO = 0.7;
+    // The default layouts never see more than about 100000 failures in a row, so these 
+    // only stop layouts that could not reach their target ratio anyway 
+    static final int MAX_FAILURES = 500000;
+    static final long MAX_ATTEMPTS = 10000000;
+	
+	private final double minR;
+	private final double maxR;
+	private final double targetRatio;
+	
+	/**
+	* Constructor for a CircleMaker that uses the default radii (between 1/80 and 1/20)
+	* and target ratio (0.7) 
+	*/
+	public CircleMaker() {
+		this(MIN_R, MAX_R, TARGET_RATIO);
+	}
+	
+	/**
+	* Constructor for a CircleMaker 
+	* 
+	* @param minR The minimum radius a circle can have
+	* @param maxR The maximum radius a circle can have
+	* @param targetRatio The desired ratio of total circle area to total area to fill 
+	*/
+	public CircleMaker(double minR, double maxR, double targetRatio) {
+		this.minR = minR;
+		this.maxR = maxR;
+		this.targetRatio = targetRatio;
+	}
 
 	/**
 	* Create an ArrayList of Circle objects that randomly fill a larger circle. No two
@@ -33,7 +75,8 @@ public class CircleMaker {
 	/**
 	* Create an ArrayList of Circle objects that randomly fill a larger circle. No two
 	* circles touch, and the total area of the circles combined divided by 
-	* the total area to fill is less than the target ratio.
+	* the total area to fill is less than the target ratio. If the target ratio cannot
+	* be reached, the circles fill as much as they can. 
 	* 
 	* @param minR The minimum radius a circle can have
 	* @param maxR The maximum radius a circle can have
@@ -41,81 +84,124 @@ public class CircleMaker {
 	* @return an ArrayList of Circle objects
 	*/
     public static ArrayList<Circle> makeCircles(double minR, double maxR, double targetRatio) {
-		/* The bucket size should be maxR*2, so that any circle that falls within that bucket 
-		* will only have to be checked against the immediately surrounding buckets, since
-		* it could not overlap with circles outside those buckets. For example, if a circle
-		* falls in bucket 4 (below), we would need to check buckets 0,1,2,3,4,5,6,7,8 
-		*  | 0 | 1 | 2 |
-		*  | 3 | 4 | 5 |
-		*  | 6 | 7 | 8 |	
-		*/
-		final double BUCKET_SIZE = 2*maxR;
-		final int ROWS = (int)(Math.ceil(2/(BUCKET_SIZE)));
-		final int TOTAL_BUCKETS = ROWS * ROWS;
+		return new CircleMaker(minR, maxR, targetRatio).makeLayout(new SplittableRandom()).toCircles();
+	}
+	
+	/**
+	* Create one layout from a seed. The same seed always gives the same layout. 
+	* 
+	* @param seed The seed for the random positions and radii 
+	* @return an ArrayList of Circle objects
+	*/
+	public ArrayList<Circle> makeCircles(long seed) {
+		return makeLayout(seed).toCircles();
+	}
+	
+	/**
+	* Create one layout from a seed. The same seed always gives the same layout. 
+	* 
+	* @param seed The seed for the random positions and radii 
+	* @return The layout of circles 
+	*/
+	public CircleLayout makeLayout(long seed) {
+		return makeLayout(new SplittableRandom(seed));
+	}
+	
+	/**
+	* Create several independent layouts in parallel on the common fork-join pool. 
+	* The same seed and count always give the same layouts in the same order, no matter
+	* how the work is split between threads. 
+	* 
+	* @param count The number of layouts to make
+	* @param seed The seed for the whole batch 
+	* @return The layouts 
+	*/
+	public List<CircleLayout> makeLayouts(int count, long seed) {
+		return makeLayouts(count, seed, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	* Create several independent layouts in parallel on the given fork-join pool. Each
+	* layout gets its own SplittableRandom, split from one made from the seed before any
+	* of the work starts, so the layouts do not depend on which thread makes them. 
+	* 
+	* @param count The number of layouts to make
+	* @param seed The seed for the whole batch 
+	* @param pool The pool to make the layouts on 
+	* @return The layouts 
+	*/
+	public List<CircleLayout> makeLayouts(int count, long seed, ForkJoinPool pool) {
+		SplittableRandom root = new SplittableRandom(seed);
+		List<Callable<CircleLayout>> tasks = new ArrayList<Callable<CircleLayout>>(count);
+		for(int i = 0; i < count; i++) {
+			final SplittableRandom random = root.split();
+			tasks.add(() -> makeLayout(random));
+		}
 		
-		// Create an ArrayList to hold all the buckets, which are just ArrayLists of Circles
-		ArrayList<ArrayList<Circle>> buckets = new ArrayList<ArrayList<Circle>>(TOTAL_BUCKETS);
-		for(int i = 0; i < TOTAL_BUCKETS; i++) {
-			buckets.add(new ArrayList<Circle>());
+		List<CircleLayout> layouts = new ArrayList<CircleLayout>(count);
+		try {
+			for(Future<CircleLayout> f : pool.invokeAll(tasks)) {
+				layouts.add(f.get());
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while making layouts", e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException("Could not make layout", e.getCause());
 		}
+		return layouts;
+	}
+	
+	/**
+	* Create a layout of circles that randomly fill a larger circle. No two
+	* circles touch, and the total area of the circles combined divided by 
+	* the total area to fill is less than the target ratio, or as close to it as the
+	* circles get before the larger circle is full (see MAX_FAILURES and MAX_ATTEMPTS). 
+	* 
+	* @param random The source of the random positions and radii; it is used by this call only
+	* @return The layout of circles 
+	*/
+	public CircleLayout makeLayout(SplittableRandom random) {
+		// The grid finds the circles near each new one; see CircleGrid for how 
+		CircleGrid grid = new CircleGrid(maxR);
+		
+		// The total area belongs to this layout only 
+		double area = 0.0;
+		long attempts = 0;
+		int failures = 0;
 
 		// Continue generating circles until we either the area of how much we have filled is greater
 		// than our target ratio. We also check to make sure the number of circles is still less 
-		// than the maximum number of circles to avoid an infinite loop. 
-		while (area/FILL_AREA < TARGET_RATIO && n < MAX_N) {			
+		// than the maximum number of circles, and that there is still room for more, to avoid 
+		// an infinite loop. 
+		while (area/FILL_AREA < targetRatio && grid.size() < MAX_N && attempts < MAX_ATTEMPTS && failures < MAX_FAILURES) {
+			attempts++;
+			failures++;
 			// Select a random (x,y) offset and radius 
 			// Note: the true (x,y) coordinates will be -1.0 + the offset 
-			double xOffset = 2.0 * Math.random();
-			double yOffset = 2.0 * Math.random();
-			double radius = minR + (maxR-minR)*Math.random();
+			double xOffset = 2.0 * random.nextDouble();
+			double yOffset = 2.0 * random.nextDouble();
+			double radius = minR + (maxR-minR)*random.nextDouble();
 			double x = -1.0 + xOffset;
 			double y = -1.0 + yOffset;
 			
-			// Determine the row and column of the bucket
-			// this circle falls into
-			int col = (int)(xOffset / (BUCKET_SIZE));
-			int row = (int)(yOffset / (BUCKET_SIZE));
+			// A circle whose center is within minR of the edge can never fit, 
+			// so skip checking it against its neighbors 
+			double fromOrigin = Math.sqrt(x*x + y*y);
+			if(fromOrigin + minR > 1.0) { continue; }
 			
-			// Go through the surrounding buckets and check to make sure
-			// the new Circle does not overlap any of the existing circles
-			int bucket, dy, dx;
-			for(dy = -1; dy <= 1; dy++) {
-				// If it is not a valid row, go to the next one
-				if(row + dy < 0 || row + dy >= ROWS) { continue; }
-				
-				for(dx = -1; dx <= 1; dx++) {
-					// If it is not a valid column, go to the next one
-					if(col + dx < 0 || col + dx >= ROWS) { continue; }
-					
-					// Determine the bucket number and check all Circles in that
-					// bucket. If the new Circle overlaps, decrease its radius
-					// by the distance they overlap 
-					bucket = (col + dx)+ (row + dy)*ROWS;
-					for(Circle c : buckets.get(bucket)) {
-						// Check for overlap
-						double d = Math.sqrt((x-c.x)*(x-c.x) + (y-c.y)*(y-c.y));
-						if(d < radius + c.r) {
-							radius = d - c.r;
-						}
-					}
-				}				
-			}			
-			// Add circle to correct bucket if radius > minR and it is still in the larger circle
-			double d = Math.sqrt(x*x + y*y) + Math.abs(radius);
-			if(radius >= minR && d <= 1.0) {
+			// Shrink the circle so it does not overlap any of the existing circles
+			radius = grid.fit(x, y, radius, minR);
+			
+			// Add circle to the grid if radius > minR and it is still in the larger circle
+			if(radius >= minR && fromOrigin + radius <= 1.0) {
 				area += Math.PI*radius*radius;
-				n++;
-				buckets.get(col + row*ROWS).add(new Circle(x, y, radius));
+				grid.add(x, y, radius);
+				failures = 0;
 			}
 		}
 		
-		// Put all the Circles into one ArrayList and return 
-		ArrayList<Circle> ret = new ArrayList<Circle>();
-		for(ArrayList<Circle> a : buckets) {
-			for(Circle c : a) {
-				ret.add(c);
-			}
-		}
-		return ret;
+		// Group the circles by bucket for whoever draws or searches the layout 
+		return grid.toLayout();
 	}
-}
\ No newline at end of file
+}
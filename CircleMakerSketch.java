@@ -9,10 +9,14 @@
 */
 
 import processing.core.PApplet;
-import java.util.ArrayList;
 
 public class CircleMakerSketch extends PApplet {
 	
+	private CircleLayout layout;
+	// The gray level of each circle, picked once so every frame draws the same image 
+	private float[] grays;
+	private FrameTimer timer;
+	
 	/**
 	* Starts the sketch
 	*/
@@ -31,21 +35,10 @@ public class CircleMakerSketch extends PApplet {
 	* Required method for Processing. Will draw 60 times per second
 	*/
     public void draw()  {
-    }
-
-	/**
-	* Sets up the sketch by drawing 
-	*/
-    public void setup() {
-		// Note: This size will set the size of the sketch 
-		size(512, 512);
+		timer.beginFrame();
 		
 		// Set background color to black
 		background(0);
-
-		// Create an ArrayList of circle objects to draw
-		ArrayList<Circle> circles = CircleMaker.makeCircles();
-
 		scale(width/2);
 		// Puts the origin at the center of the window rather than
 		// the upper-left corner
@@ -54,22 +47,50 @@ public class CircleMakerSketch extends PApplet {
 		noStroke();
 		ellipseMode(CENTER);
 		
-		/* For each circle in the ArrayList, calculate the distance between the center
+		for (int i=0; i < layout.n; i++) {
+			fill(grays[i]);
+			// Draw the circle 
+			ellipse((float)layout.x[i], (float)layout.y[i], 
+				  2*(float)layout.r[i], 2*(float)layout.r[i]);
+		}
+		timer.endFrame();
+    }
+	
+	/**
+	* Prints the frame times when the sketch closes 
+	*/
+    public void exit() {
+		timer.dump(System.out);
+		super.exit();
+    }
+
+	/**
+	* Sets up the sketch by making the circles and picking their colors 
+	*/
+    public void setup() {
+		timer = new FrameTimer(3600, 60);
+		timer.beginSetup();
+
+		// Create a layout of circles to draw
+		layout = new CircleMaker().makeLayout(System.nanoTime());
+		
+		/* For each circle in the layout, calculate the distance between the center
 		*  of the circle and the origin. The main large circle will be split into three rings. 
 		*  The two outer rings will be filled with circles that are lighter gray than the middle ring.
 		*/
-		for (int i=0; i < circles.size(); i++) {
+		grays = new float[layout.n];
+		for (int i=0; i < layout.n; i++) {
 
-			double d = Math.sqrt(circles.get(i).x*circles.get(i).x
-						+circles.get(i).y*circles.get(i).y);
+			double d = Math.sqrt(layout.x[i]*layout.x[i]
+						+layout.y[i]*layout.y[i]);
 			if (d > 2/3.0 || d < 1/3.0) {
-				fill(255 - random(63));
+				grays[i] = 255 - random(63);
 			} else {
-				fill(127 - random(63));
+				grays[i] = 127 - random(63);
 			}
-			// Draw the circle 
-			ellipse((float)circles.get(i).x, (float)circles.get(i).y, 
-				  2*(float)circles.get(i).r, 2*(float)circles.get(i).r);
 		}
+		timer.endSetup();
+		// The circles are drawn by the first frame and shown when it ends 
+		timer.stimulusReady();
     }
 }
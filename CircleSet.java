@@ -0,0 +1,33 @@
+/**
+* A read-only, numbered set of circles that fill a larger circle. Anything that only
+* needs to read the circles (such as DrawTestImage) takes a CircleSet, so the circles
+* can come from a CircleLayout in memory or straight from a memory-mapped LayoutPool
+* without being copied. 
+* 
+* @version 2026-10-18
+*/
+public interface CircleSet {
+	
+	/**
+	* @return The number of circles 
+	*/
+	int size();
+	
+	/**
+	* @param i The number of a circle, from 0 to size()-1
+	* @return The x coordinate of the circle's center 
+	*/
+	double x(int i);
+	
+	/**
+	* @param i The number of a circle, from 0 to size()-1
+	* @return The y coordinate of the circle's center 
+	*/
+	double y(int i);
+	
+	/**
+	* @param i The number of a circle, from 0 to size()-1
+	* @return The radius of the circle 
+	*/
+	double r(int i);
+}
@@ -0,0 +1,278 @@
+/**
+* Color differences (Delta E) between CIEL*a*b* colors by the CIE76, CIE94 and CIEDE2000
+* formulas, one pair at a time or in batches over the same arrays of L*a*b* values that
+* RGBLabConverter.convertRGBToLab writes: three values per color, L* then a* then b*.
+* The batch methods write into arrays given to them and allocate nothing per color, so
+* a whole study's stimuli can be checked against their references, or a palette against
+* itself, in one call.
+* 
+* CIE94 uses the graphic arts weights (kL = 1, K1 = 0.045, K2 = 0.015) and, as the
+* formula defines, weights by the chroma of the first (reference) color. CIEDE2000
+* follows Sharma, Wu and Dalal, "The CIEDE2000 Color-Difference Formula: Implementation
+* Notes, Supplementary Test Data, and Mathematical Observations" (2005), with all three
+* weights 1.
+* 
+* @version 2026-10-18
+*/
+
+import java.util.stream.IntStream;
+
+public class ColorDifference {
+	
+	public enum Formula {
+		CIE76, CIE94, CIEDE2000
+	}
+	
+	private static final double DEG_30 = Math.toRadians(30);
+	private static final double DEG_6 = Math.toRadians(6);
+	private static final double DEG_63 = Math.toRadians(63);
+	private static final double DEG_275 = Math.toRadians(275);
+	private static final double DEG_25 = Math.toRadians(25);
+	private static final double TWO_PI = 2*Math.PI;
+	// 25^7, from the G and R_C terms of CIEDE2000
+	private static final double POW_25_7 = 6103515625.0;
+	
+	private ColorDifference() {
+	}
+	
+	/**
+	* @return The CIE76 difference: the distance between the colors in L*a*b*
+	*/
+	public static double deltaE76(double l1, double a1, double b1, double l2, double a2, double b2) {
+		double dl = l1 - l2;
+		double da = a1 - a2;
+		double db = b1 - b2;
+		return Math.sqrt(dl*dl + da*da + db*db);
+	}
+	
+	/**
+	* @return The CIE94 difference, with the first color as the reference
+	*/
+	public static double deltaE94(double l1, double a1, double b1, double l2, double a2, double b2) {
+		double c1 = Math.sqrt(a1*a1 + b1*b1);
+		double c2 = Math.sqrt(a2*a2 + b2*b2);
+		double dl = l1 - l2;
+		double dc = c1 - c2;
+		double da = a1 - a2;
+		double db = b1 - b2;
+		// dH^2 = da^2 + db^2 - dC^2, which rounding can make slightly negative
+		double dh2 = Math.max(0, da*da + db*db - dc*dc);
+		double sc = 1 + 0.045*c1;
+		double sh = 1 + 0.015*c1;
+		return Math.sqrt(dl*dl + (dc/sc)*(dc/sc) + dh2/(sh*sh));
+	}
+	
+	/**
+	* @return The CIEDE2000 difference
+	*/
+	public static double deltaE2000(double l1, double a1, double b1, double l2, double a2, double b2) {
+		double cBar = 0.5*(Math.sqrt(a1*a1 + b1*b1) + Math.sqrt(a2*a2 + b2*b2));
+		double cBar7 = pow7(cBar);
+		double g = 0.5*(1 - Math.sqrt(cBar7 / (cBar7 + POW_25_7)));
+		double ap1 = (1 + g)*a1;
+		double ap2 = (1 + g)*a2;
+		double cp1 = Math.sqrt(ap1*ap1 + b1*b1);
+		double cp2 = Math.sqrt(ap2*ap2 + b2*b2);
+		double hp1 = hue(b1, ap1);
+		double hp2 = hue(b2, ap2);
+		
+		double dl = l2 - l1;
+		double dc = cp2 - cp1;
+		double dhp;
+		if(cp1*cp2 == 0) {
+			dhp = 0;
+		} else {
+			dhp = hp2 - hp1;
+			if(dhp > Math.PI) {
+				dhp -= TWO_PI;
+			} else if(dhp < -Math.PI) {
+				dhp += TWO_PI;
+			}
+		}
+		double dh = 2*Math.sqrt(cp1*cp2)*Math.sin(0.5*dhp);
+		
+		double lBar = 0.5*(l1 + l2);
+		double cpBar = 0.5*(cp1 + cp2);
+		double hpBar;
+		if(cp1*cp2 == 0) {
+			hpBar = hp1 + hp2;
+		} else if(Math.abs(hp1 - hp2) <= Math.PI) {
+			hpBar = 0.5*(hp1 + hp2);
+		} else if(hp1 + hp2 < TWO_PI) {
+			hpBar = 0.5*(hp1 + hp2 + TWO_PI);
+		} else {
+			hpBar = 0.5*(hp1 + hp2 - TWO_PI);
+		}
+		double t = 1 - 0.17*Math.cos(hpBar - DEG_30) + 0.24*Math.cos(2*hpBar)
+			+ 0.32*Math.cos(3*hpBar + DEG_6) - 0.20*Math.cos(4*hpBar - DEG_63);
+		double angle = (hpBar - DEG_275) / DEG_25;
+		double dTheta = DEG_30*Math.exp(-angle*angle);
+		double cpBar7 = pow7(cpBar);
+		double rc = 2*Math.sqrt(cpBar7 / (cpBar7 + POW_25_7));
+		double l50 = (lBar - 50)*(lBar - 50);
+		double sl = 1 + 0.015*l50 / Math.sqrt(20 + l50);
+		double sc = 1 + 0.045*cpBar;
+		double sh = 1 + 0.015*cpBar*t;
+		double rt = -Math.sin(2*dTheta)*rc;
+		
+		double fl = dl / sl;
+		double fc = dc / sc;
+		double fh = dh / sh;
+		return Math.sqrt(fl*fl + fc*fc + fh*fh + rt*fc*fh);
+	}
+	
+	/**
+	* Finds the difference between two colors by any of the formulas
+	* 
+	* @param formula The formula to use
+	* @param lab1 The L*a*b* values of the first (reference) color, at offset1
+	* @param offset1 The index of the first color's L*
+	* @param lab2 The L*a*b* values of the second color, at offset2
+	* @param offset2 The index of the second color's L*
+	* @return The difference
+	*/
+	public static double deltaE(Formula formula, double[] lab1, int offset1, double[] lab2, int offset2) {
+		double l1 = lab1[offset1], a1 = lab1[offset1 + 1], b1 = lab1[offset1 + 2];
+		double l2 = lab2[offset2], a2 = lab2[offset2 + 1], b2 = lab2[offset2 + 2];
+		switch(formula) {
+			case CIE76: return deltaE76(l1, a1, b1, l2, a2, b2);
+			case CIE94: return deltaE94(l1, a1, b1, l2, a2, b2);
+			default: return deltaE2000(l1, a1, b1, l2, a2, b2);
+		}
+	}
+	
+	/**
+	* Finds the difference between each color and the color at the same place in a
+	* second array, such as each stimulus and its reference
+	* 
+	* @param formula The formula to use
+	* @param reference The L*a*b* values of the reference colors, three per color
+	* @param lab The L*a*b* values of the colors to compare, three per color
+	* @param out The array to write the difference for each color to; must hold at least lab.length/3 values
+	*/
+	public static void pairwise(Formula formula, double[] reference, double[] lab, double[] out) {
+		if(lab.length % 3 != 0 || reference.length != lab.length || out.length < lab.length/3) {
+			throw new IllegalArgumentException("reference and lab must hold the same colors, and out one value for each");
+		}
+		int n = lab.length/3;
+		switch(formula) {
+			case CIE76:
+				for(int i = 0; i < n; i++) {
+					int k = 3*i;
+					out[i] = deltaE76(reference[k], reference[k + 1], reference[k + 2], lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+			case CIE94:
+				for(int i = 0; i < n; i++) {
+					int k = 3*i;
+					out[i] = deltaE94(reference[k], reference[k + 1], reference[k + 2], lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+			default:
+				for(int i = 0; i < n; i++) {
+					int k = 3*i;
+					out[i] = deltaE2000(reference[k], reference[k + 1], reference[k + 2], lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+		}
+	}
+	
+	/**
+	* Finds the difference between one reference color and each of a set of colors
+	* 
+	* @param formula The formula to use
+	* @param l The L* value of the reference color
+	* @param a The a* value of the reference color
+	* @param b The b* value of the reference color
+	* @param lab The L*a*b* values of the colors to compare, three per color
+	* @param out The array to write the difference for each color to; must hold at least lab.length/3 values
+	*/
+	public static void toReference(Formula formula, double l, double a, double b, double[] lab, double[] out) {
+		if(lab.length % 3 != 0 || out.length < lab.length/3) {
+			throw new IllegalArgumentException("out must hold one value for each color in lab");
+		}
+		row(formula, l, a, b, lab, out, 0);
+	}
+	
+	/**
+	* Finds the difference between every color of one set and every color of another,
+	* such as two palettes, with the rows found in parallel
+	* 
+	* @param formula The formula to use
+	* @param labA The L*a*b* values of the first set, three per color; these are the references
+	* @param labB The L*a*b* values of the second set, three per color
+	* @param out The array to write the differences to: color i of the first set against color j of the second is at out[i*(labB.length/3) + j]
+	*/
+	public static void manyToMany(final Formula formula, final double[] labA, final double[] labB, final double[] out) {
+		if(labA.length % 3 != 0 || labB.length % 3 != 0 || out.length < (long)(labA.length/3) * (labB.length/3)) {
+			throw new IllegalArgumentException("out must hold one value for each pair of colors");
+		}
+		final int columns = labB.length/3;
+		IntStream.range(0, labA.length/3).parallel().forEach(i ->
+			row(formula, labA[3*i], labA[3*i + 1], labA[3*i + 2], labB, out, i*columns));
+	}
+	
+	/**
+	* Finds the smallest difference between any two colors of a palette, to check that
+	* every color can be told apart from every other
+	* 
+	* @param formula The formula to use
+	* @param lab The L*a*b* values of the palette, three per color
+	* @return The smallest difference, or infinity if the palette has fewer than two colors
+	*/
+	public static double minDifference(final Formula formula, final double[] lab) {
+		if(lab.length % 3 != 0) {
+			throw new IllegalArgumentException("lab must hold 3 values for each color");
+		}
+		final int n = lab.length/3;
+		// Both orders of each pair are compared, since CIE94 is not symmetric
+		return IntStream.range(0, n).parallel().mapToDouble(i -> {
+			double min = Double.POSITIVE_INFINITY;
+			for(int j = 0; j < n; j++) {
+				if(j != i) {
+					min = Math.min(min, deltaE(formula, lab, 3*i, lab, 3*j));
+				}
+			}
+			return min;
+		}).min().orElse(Double.POSITIVE_INFINITY);
+	}
+	
+	// The differences from one reference color to every color in lab, written from out[start]
+	private static void row(Formula formula, double l, double a, double b, double[] lab, double[] out, int start) {
+		int n = lab.length/3;
+		switch(formula) {
+			case CIE76:
+				for(int j = 0; j < n; j++) {
+					int k = 3*j;
+					out[start + j] = deltaE76(l, a, b, lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+			case CIE94:
+				for(int j = 0; j < n; j++) {
+					int k = 3*j;
+					out[start + j] = deltaE94(l, a, b, lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+			default:
+				for(int j = 0; j < n; j++) {
+					int k = 3*j;
+					out[start + j] = deltaE2000(l, a, b, lab[k], lab[k + 1], lab[k + 2]);
+				}
+				break;
+		}
+	}
+	
+	// The hue angle in [0, 2 pi), with 0 for a gray
+	private static double hue(double b, double a) {
+		if(a == 0 && b == 0) {
+			return 0;
+		}
+		double h = Math.atan2(b, a);
+		return h < 0 ? h + TWO_PI : h;
+	}
+	
+	private static double pow7(double x) {
+		double x2 = x*x;
+		return x2*x2*x2*x;
+	}
+}
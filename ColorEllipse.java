@@ -0,0 +1,89 @@
+/**
+* A color discrimination ellipse (in the a*b* plane) or ellipsoid (in L*a*b*) around
+* a center color, as fitted by EllipseFitter. The points p on the ellipse are those
+* where (p - center)' M (p - center) = 1 for the symmetric matrix M. 
+* 
+* @version 2026-10-18
+*/
+public class ColorEllipse {
+	
+	/** 2 for an ellipse in a*b*, 3 for an ellipsoid in L*a*b* */
+	public final int dims;
+	public final double[] center;
+	/** The matrix M, row by row (dims*dims values) */
+	public final double[] matrix;
+	/** The lengths of the semi-axes, from longest to shortest */
+	public final double[] axes;
+	/** The direction of each axis as a unit vector, axis by axis (dims*dims values) */
+	public final double[] axisDirections;
+	/** The root mean square distance from the points to the ellipse, along the line from the center */
+	public final double rmsResidual;
+	/** The largest such distance */
+	public final double maxResidual;
+	/** The number of points the ellipse was fitted to */
+	public final int points;
+	/** true if the least squares fit was not an ellipse and had to be pulled back to one */
+	public final boolean constrained;
+	
+	/**
+	* Constructor for a ColorEllipse 
+	*/
+	public ColorEllipse(int dims, double[] center, double[] matrix, double[] axes, double[] axisDirections, 
+			double rmsResidual, double maxResidual, int points, boolean constrained) {
+		this.dims = dims;
+		this.center = center;
+		this.matrix = matrix;
+		this.axes = axes;
+		this.axisDirections = axisDirections;
+		this.rmsResidual = rmsResidual;
+		this.maxResidual = maxResidual;
+		this.points = points;
+		this.constrained = constrained;
+	}
+	
+	/**
+	* Gets the angle of the longest axis. For an ellipse this is measured in the a*b* plane 
+	* from the a* axis towards b*; for an ellipsoid it is the angle of the longest axis 
+	* projected onto the a*b* plane. 
+	* 
+	* @return The angle, in radians from 0 up to pi 
+	*/
+	public double orientation() {
+		double a = axisDirections[dims - 2];
+		double b = axisDirections[dims - 1];
+		double angle = Math.atan2(b, a);
+		return angle < 0 ? angle + Math.PI : angle >= Math.PI ? angle - Math.PI : angle;
+	}
+	
+	/**
+	* Gets the distance from the center to the ellipse in a direction 
+	* 
+	* @param direction The direction, which does not have to be a unit vector 
+	* @return The distance along it to the ellipse 
+	*/
+	public double radius(double[] direction) {
+		double q = 0;
+		double len = 0;
+		for(int i = 0; i < dims; i++) {
+			len += direction[i]*direction[i];
+			for(int j = 0; j < dims; j++) {
+				q += direction[i]*matrix[i*dims + j]*direction[j];
+			}
+		}
+		return Math.sqrt(len / q);
+	}
+	
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(dims == 2 ? "ellipse" : "ellipsoid").append(" axes");
+		for(double a : axes) {
+			sb.append(String.format(" %.4f", a));
+		}
+		sb.append(String.format(", angle %.2f degrees, rms residual %.4f, max residual %.4f, %d points", 
+			Math.toDegrees(orientation()), rmsResidual, maxResidual, points));
+		if(constrained) {
+			sb.append(", constrained");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,438 @@
+/**
+* Turns the ArgyllCMS .ti3 measurements of a display (see DisplayMeasurement/README.md)
+* into the files RGBLabConverter loads, doing the steps the README describes for a 
+* spreadsheet: 
+*   1. Sum each measured spectrum to get its energy. 
+*   2. For each channel, divide the energy at every code value by the largest one, 
+*      giving the uncompressed value of each code (the gamma table). 
+*   3. Take the spectra of full red, green, blue and white as the primaries. 
+*   4. Multiply the primaries by the CIE 1931 color matching functions and sum, giving 
+*      the RGB to XYZ matrix, and invert it for XYZ to RGB. 
+*   5. Fit the model lowerLimit + (1 - lowerLimit) * (code/255)^gamma to the gamma table. 
+* Each measurement file (replicate) is worked through on its own, and then, for every code
+* value and every wavelength, the replicates are combined by dropping those more than 
+* three (scaled) median absolute deviations from their median and averaging the rest. 
+* 
+* The color matching functions are the piecewise Gaussian fit of Wyman, Sloan and 
+* Shirley (2013), which is within the error of the measurements, so no table of them 
+* needs to be kept with the code. 
+* 
+* Usage: java DisplayCharacterization outputDir name file.ti3 [file.ti3 ...]
+* writes name_gamma.csv, name_primaries.csv, name_matrices.csv and name_model.csv. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class DisplayCharacterization {
+	
+	// Code values below this are mostly noise, so the gamma fit skips them 
+	private static final int MIN_FIT_CODE = 16;
+	private static final double OUTLIER_MADS = 3;
+	
+	public final double[] wavelengths;
+	/** The uncompressed value of each code, gammaTable[channel][code] */
+	public final double[][] gammaTable;
+	/** The spectra of full red, green, blue and white */
+	public final double[][] primaries;
+	/** The X, Y and Z of the red primary, then of green, then of blue */
+	public final double[] rgbToXYZ;
+	/** The inverse of rgbToXYZ: the R, G and B of X, then of Y, then of Z */
+	public final double[] xyzToRGB;
+	public final double gamma;
+	public final double[] lowerLimits;
+	/** The XYZ of full white according to the matrix (red + green + blue), the white point for RGBLabConverter */
+	public final double[] whitePoint;
+	/** The XYZ of the measured white spectrum */
+	public final double[] measuredWhite;
+	/** How far the white spectrum is from the sum of the red, green and blue spectra, as a fraction of white's energy */
+	public final double additivityError;
+	public final int replicates;
+	
+	private DisplayCharacterization(double[] wavelengths, double[][] gammaTable, double[][] primaries, int replicates) {
+		this.wavelengths = wavelengths;
+		this.gammaTable = gammaTable;
+		this.primaries = primaries;
+		this.replicates = replicates;
+		
+		// Integrate each primary (and white) against each matching function 
+		final double[][] xyz = new double[4][3];
+		IntStream.range(0, 12).parallel().forEach(k -> {
+			int p = k / 3;
+			int f = k % 3;
+			double sum = 0;
+			for(int i = 0; i < wavelengths.length; i++) {
+				sum += cmf(f, wavelengths[i]) * primaries[p][i];
+			}
+			xyz[p][f] = sum;
+		});
+		rgbToXYZ = new double[9];
+		for(int p = 0; p < 3; p++) {
+			System.arraycopy(xyz[p], 0, rgbToXYZ, 3*p, 3);
+		}
+		xyzToRGB = invert(rgbToXYZ);
+		whitePoint = new double[3];
+		for(int f = 0; f < 3; f++) {
+			whitePoint[f] = xyz[0][f] + xyz[1][f] + xyz[2][f];
+		}
+		measuredWhite = xyz[3];
+		
+		double diff = 0;
+		double white = 0;
+		for(int i = 0; i < wavelengths.length; i++) {
+			diff += Math.abs(primaries[3][i] - primaries[0][i] - primaries[1][i] - primaries[2][i]);
+			white += primaries[3][i];
+		}
+		additivityError = diff / white;
+		
+		// The lower limit of each channel is the lowest value in its table; gamma is the 
+		// least squares slope (through the origin) of log((u - lowerLimit)/(1 - lowerLimit)) 
+		// against log(code/255), over all three channels 
+		lowerLimits = new double[3];
+		double sxy = 0;
+		double sxx = 0;
+		for(int c = 0; c < 3; c++) {
+			double low = Double.MAX_VALUE;
+			for(double u : gammaTable[c]) {
+				low = Math.min(low, u);
+			}
+			lowerLimits[c] = low;
+			for(int code = MIN_FIT_CODE; code < 255; code++) {
+				double y = (gammaTable[c][code] - low) / (1 - low);
+				if(y > 0) {
+					double x = Math.log(code / 255.0);
+					sxy += x * Math.log(y);
+					sxx += x * x;
+				}
+			}
+		}
+		gamma = sxy / sxx;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if(args.length < 3) {
+			System.out.println("Usage: java DisplayCharacterization outputDir name file.ti3 [file.ti3 ...]");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		List<File> files = new ArrayList<File>();
+		for(int i = 2; i < args.length; i++) {
+			files.add(new File(args[i]));
+		}
+		DisplayCharacterization d = fromTi3(files);
+		d.write(new File(args[0]), args[1]);
+		System.out.println(d);
+		System.out.println("Done in " + (System.nanoTime() - start)/1000000 + " ms");
+	}
+	
+	/**
+	* Characterizes a display from one or more .ti3 files measured with 
+	* targ_256ramps_0ofps_11bw.ti1 (ramps of red, green and blue, plus black and white) 
+	* 
+	* @param files The .ti3 files, one for each time the measurements were taken 
+	* @return The characterization 
+	*/
+	public static DisplayCharacterization fromTi3(final List<File> files) throws IOException {
+		final int n = files.size();
+		if(n == 0) {
+			throw new IllegalArgumentException("Need at least one .ti3 file");
+		}
+		final double[][][] tables = new double[n][][];
+		final double[][][] spectra = new double[n][][];
+		final double[][] bands = new double[n][];
+		// The files are independent, so they are read and worked through in parallel 
+		try {
+			IntStream.range(0, n).parallel().forEach(r -> {
+				try {
+					CGATSReader.Table t = CGATSReader.readFirst(files.get(r));
+					bands[r] = wavelengths(t);
+					double[][] prim = new double[4][];
+					tables[r] = replicate(t, bands[r].length, prim);
+					spectra[r] = prim;
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+		} catch(RuntimeException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw e;
+		}
+		for(int r = 1; r < n; r++) {
+			if(!Arrays.equals(bands[r], bands[0])) {
+				throw new IOException(files.get(r) + " has different spectral bands from " + files.get(0));
+			}
+		}
+		
+		double[] values = new double[n];
+		double[][] gammaTable = new double[3][256];
+		for(int c = 0; c < 3; c++) {
+			for(int code = 0; code < 256; code++) {
+				for(int r = 0; r < n; r++) {
+					values[r] = tables[r][c][code];
+				}
+				gammaTable[c][code] = robustMean(values);
+			}
+		}
+		double[][] primaries = new double[4][bands[0].length];
+		for(int p = 0; p < 4; p++) {
+			for(int i = 0; i < bands[0].length; i++) {
+				for(int r = 0; r < n; r++) {
+					values[r] = spectra[r][p][i];
+				}
+				primaries[p][i] = robustMean(values);
+			}
+		}
+		return new DisplayCharacterization(bands[0], gammaTable, primaries, n);
+	}
+	
+	// The wavelength of each SPEC_ field, from the SPECTRAL_ keywords 
+	private static double[] wavelengths(CGATSReader.Table t) throws IOException {
+		double[] bands = t.keywordNumbers("SPECTRAL_BANDS");
+		double[] start = t.keywordNumbers("SPECTRAL_START_NM");
+		double[] end = t.keywordNumbers("SPECTRAL_END_NM");
+		if(bands == null || start == null || end == null) {
+			throw new IOException("The measurements have no spectra");
+		}
+		int nb = (int)bands[0];
+		double[] w = new double[nb];
+		for(int i = 0; i < nb; i++) {
+			w[i] = start[0] + (end[0] - start[0]) * i / (nb - 1);
+		}
+		return w;
+	}
+	
+	// Works through one replicate: returns its gamma table and fills in its four primaries 
+	private static double[][] replicate(CGATSReader.Table t, int nb, double[][] primaries) throws IOException {
+		double[][] rgb = {t.column("RGB_R"), t.column("RGB_G"), t.column("RGB_B")};
+		int first = t.fieldIndex("RGB_B") + 1;
+		while(first < t.fields.length && !t.fields[first].startsWith("SPEC_")) {
+			first++;
+		}
+		if(first + nb > t.fields.length) {
+			throw new IOException("The measurements have fewer spectral values than bands");
+		}
+		final double[][] spec = new double[nb][];
+		for(int i = 0; i < nb; i++) {
+			spec[i] = t.column(first + i);
+		}
+		
+		// The energy of every measurement 
+		final double[] energy = new double[t.rows];
+		IntStream.range(0, t.rows).parallel().forEach(row -> {
+			double sum = 0;
+			for(int i = 0; i < spec.length; i++) {
+				sum += spec[i][row];
+			}
+			energy[row] = sum;
+		});
+		
+		// Average the energy of all the measurements of each code of each channel. Black
+		// is code 0 of every channel; a ramp sample has one channel on and the others off 
+		double[][] sum = new double[3][256];
+		int[][] count = new int[3][256];
+		int whites = 0;
+		for(int p = 0; p < 4; p++) {
+			primaries[p] = new double[nb];
+		}
+		for(int row = 0; row < t.rows; row++) {
+			int on = -1;
+			int onCount = 0;
+			int allFull = 0;
+			for(int c = 0; c < 3; c++) {
+				if(rgb[c][row] > 0) {
+					on = c;
+					onCount++;
+				}
+				if(rgb[c][row] >= 100) {
+					allFull++;
+				}
+			}
+			if(onCount == 0) {
+				for(int c = 0; c < 3; c++) {
+					sum[c][0] += energy[row];
+					count[c][0]++;
+				}
+			} else if(onCount == 1) {
+				int code = (int)Math.round(rgb[on][row] * 2.55);
+				sum[on][code] += energy[row];
+				count[on][code]++;
+				if(code == 255) {
+					addSpectrum(primaries[on], spec, row);
+				}
+			} else if(allFull == 3) {
+				addSpectrum(primaries[3], spec, row);
+				whites++;
+			}
+		}
+		double[][] table = new double[3][256];
+		for(int c = 0; c < 3; c++) {
+			double max = 0;
+			for(int code = 0; code < 256; code++) {
+				if(count[c][code] == 0) {
+					throw new IOException("No measurement of code " + code + " of channel " + "RGB".charAt(c));
+				}
+				table[c][code] = sum[c][code] / count[c][code];
+				max = Math.max(max, table[c][code]);
+			}
+			for(int code = 0; code < 256; code++) {
+				table[c][code] /= max;
+			}
+			scale(primaries[c], 1.0 / count[c][255]);
+		}
+		if(whites == 0) {
+			throw new IOException("No measurement of white");
+		}
+		scale(primaries[3], 1.0 / whites);
+		return table;
+	}
+	
+	private static void addSpectrum(double[] into, double[][] spec, int row) {
+		for(int i = 0; i < into.length; i++) {
+			into[i] += spec[i][row];
+		}
+	}
+	
+	private static void scale(double[] values, double factor) {
+		for(int i = 0; i < values.length; i++) {
+			values[i] *= factor;
+		}
+	}
+	
+	/**
+	* Averages values after dropping outliers: those more than three times the median 
+	* absolute deviation (scaled to match a standard deviation) from the median 
+	* 
+	* @param values The values; they are left in sorted order 
+	* @return The mean of the values that are not outliers 
+	*/
+	static double robustMean(double[] values) {
+		int n = values.length;
+		Arrays.sort(values);
+		double median = n % 2 == 1 ? values[n/2] : (values[n/2 - 1] + values[n/2]) / 2;
+		double[] deviations = new double[n];
+		for(int i = 0; i < n; i++) {
+			deviations[i] = Math.abs(values[i] - median);
+		}
+		Arrays.sort(deviations);
+		double mad = n % 2 == 1 ? deviations[n/2] : (deviations[n/2 - 1] + deviations[n/2]) / 2;
+		double limit = OUTLIER_MADS * 1.4826 * mad;
+		double sum = 0;
+		int kept = 0;
+		for(double v : values) {
+			if(mad == 0 || Math.abs(v - median) <= limit) {
+				sum += v;
+				kept++;
+			}
+		}
+		return sum / kept;
+	}
+	
+	/**
+	* The CIE 1931 2 degree color matching functions, from the multi-lobe Gaussian fit in
+	* Wyman, Sloan and Shirley, "Simple Analytic Approximations to the CIE XYZ Color 
+	* Matching Functions", Journal of Computer Graphics Techniques 2(2), 2013 
+	* 
+	* @param f 0 for x-bar, 1 for y-bar, 2 for z-bar 
+	* @param nm The wavelength in nanometers 
+	* @return The value of the matching function 
+	*/
+	static double cmf(int f, double nm) {
+		switch(f) {
+			case 0: return 1.056*lobe(nm, 599.8, 37.9, 31.0) + 0.362*lobe(nm, 442.0, 16.0, 26.7) - 0.065*lobe(nm, 501.1, 20.4, 26.2);
+			case 1: return 0.821*lobe(nm, 568.8, 46.9, 40.5) + 0.286*lobe(nm, 530.9, 16.3, 31.1);
+			default: return 1.217*lobe(nm, 437.0, 11.8, 36.0) + 0.681*lobe(nm, 459.0, 26.0, 13.8);
+		}
+	}
+	
+	// A Gaussian with a different width on each side of its peak 
+	private static double lobe(double x, double mu, double below, double above) {
+		double t = (x - mu) / (x < mu ? below : above);
+		return Math.exp(-0.5*t*t);
+	}
+	
+	// The inverse of a 3x3 matrix stored row by row 
+	static double[] invert(double[] m) {
+		double det = m[0]*(m[4]*m[8] - m[5]*m[7]) - m[1]*(m[3]*m[8] - m[5]*m[6]) + m[2]*(m[3]*m[7] - m[4]*m[6]);
+		if(det == 0) {
+			throw new IllegalStateException("The primaries are not independent");
+		}
+		return new double[] {
+			(m[4]*m[8] - m[5]*m[7]) / det, (m[2]*m[7] - m[1]*m[8]) / det, (m[1]*m[5] - m[2]*m[4]) / det,
+			(m[5]*m[6] - m[3]*m[8]) / det, (m[0]*m[8] - m[2]*m[6]) / det, (m[2]*m[3] - m[0]*m[5]) / det,
+			(m[3]*m[7] - m[4]*m[6]) / det, (m[1]*m[6] - m[0]*m[7]) / det, (m[0]*m[4] - m[1]*m[3]) / det
+		};
+	}
+	
+	/**
+	* Writes the gamma table, primaries, matrices and model in the same layout as the 
+	* files in DisplayMeasurement. The matrices and model files can be given to 
+	* RGBLabConverter, with whitePoint as its white point. 
+	* 
+	* @param dir The directory to write to 
+	* @param name The start of each file name 
+	*/
+	public void write(File dir, String name) throws IOException {
+		if(!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not make " + dir);
+		}
+		try (PrintWriter out = new PrintWriter(new File(dir, name + "_gamma.csv"), "UTF-8")) {
+			out.print("Compressed int,Compressed float,Uncompressed R,Uncompressed G,Uncompressed B\n");
+			for(int code = 0; code < 256; code++) {
+				out.print(code + "," + plain(code / 255.0) + "," + plain(gammaTable[0][code]) + "," + 
+					plain(gammaTable[1][code]) + "," + plain(gammaTable[2][code]) + "\n");
+			}
+		}
+		try (PrintWriter out = new PrintWriter(new File(dir, name + "_primaries.csv"), "UTF-8")) {
+			out.print("wavelength");
+			for(double w : wavelengths) {
+				out.print("," + plain(w));
+			}
+			out.print("\n");
+			for(int p = 0; p < 4; p++) {
+				out.print("RGBW".charAt(p));
+				for(double v : primaries[p]) {
+					out.print("," + plain(v));
+				}
+				out.print("\n");
+			}
+		}
+		try (PrintWriter out = new PrintWriter(new File(dir, name + "_matrices.csv"), "UTF-8")) {
+			out.print("RGBtoXYZ,X,Y,Z\n");
+			for(int p = 0; p < 3; p++) {
+				out.print("RGB".charAt(p) + "," + plain(rgbToXYZ[3*p]) + "," + plain(rgbToXYZ[3*p + 1]) + "," + plain(rgbToXYZ[3*p + 2]) + "\n");
+			}
+			out.print("XYZtoRGB,R,G,B\n");
+			for(int x = 0; x < 3; x++) {
+				out.print("XYZ".charAt(x) + "," + plain(xyzToRGB[3*x]) + "," + plain(xyzToRGB[3*x + 1]) + "," + plain(xyzToRGB[3*x + 2]) + "\n");
+			}
+		}
+		try (PrintWriter out = new PrintWriter(new File(dir, name + "_model.csv"), "UTF-8")) {
+			out.print("gamma," + plain(gamma) + "\n");
+			out.print("Red lower limit," + plain(lowerLimits[0]) + "\n");
+			out.print("Green lower limit," + plain(lowerLimits[1]) + "\n");
+			out.print("Blue lower limit," + plain(lowerLimits[2]) + "\n");
+		}
+	}
+	
+	// RGBLabConverter only reads plain decimals (no exponents), to 9 significant digits 
+	private static String plain(double v) {
+		return new BigDecimal(v).round(new MathContext(9)).stripTrailingZeros().toPlainString();
+	}
+	
+	public String toString() {
+		return String.format("%d replicates, %d bands; gamma %.4f, lower limits %.5f %.5f %.5f; white point %.6f %.6f %.6f (measured white %.4f %.4f %.4f); additivity error %.2f%%", 
+			replicates, wavelengths.length, gamma, lowerLimits[0], lowerLimits[1], lowerLimits[2], 
+			whitePoint[0], whitePoint[1], whitePoint[2], measuredWhite[0], measuredWhite[1], measuredWhite[2], 100*additivityError);
+	}
+}
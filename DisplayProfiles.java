@@ -0,0 +1,156 @@
+/**
+* One shared RGBLabConverter for each display the lab uses, looked up by an id such as
+* DELL_S2240M. Each display's profile is read the first time its converter is asked for,
+* and every caller after that, on any thread, gets the same converter, so the CSV files
+* are parsed once and the lookup table and Lab to RGB grids built for it are shared.
+* 
+* The converters handed out are fixed (see RGBLabConverter.fixedCopy): whether they use
+* a lookup table or grid is decided when they are asked for and cannot be changed by one
+* of the callers sharing them. They only ever read their matrices and transfer functions
+* after they are made, so they can be used from any number of threads at once. A caller
+* that wants a grid as well gets its own copy with withLabToRGBGrid, which still shares
+* the grid with every other copy that asks for the same resolution.
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DisplayProfiles {
+	
+	/** The Dell S2240M, from the matrices and model CSV files */
+	public static final String DELL_S2240M = "dell_s2240m";
+	/** The built-in display of a MacBook Pro, from its ICC profile */
+	public static final String MACBOOK_PRO_BUILTIN = "mbp_builtin";
+	
+	/**
+	* Reads the profile of one display
+	*/
+	public interface Loader {
+		RGBLabConverter load() throws IOException;
+	}
+	
+	// Registering and loading both hold this lock, so a display cannot be registered 
+	// again while its converter is being made. Loading is rare enough that making one 
+	// display's converter at a time costs nothing. 
+	private static final Object lock = new Object();
+	private static final Map<String, Loader> loaders = new HashMap<String, Loader>();
+	private static final ConcurrentHashMap<String, RGBLabConverter> converters = new ConcurrentHashMap<String, RGBLabConverter>();
+	// Converters with a lookup table in use, by id and cache directory 
+	private static final ConcurrentHashMap<String, RGBLabConverter> withTables = new ConcurrentHashMap<String, RGBLabConverter>();
+	
+	static {
+		String dir = "DisplayMeasurement" + File.separator;
+		registerCSV(DELL_S2240M, dir + "dell_s2240m_matrices.csv", dir + "model.csv");
+		registerICC(MACBOOK_PRO_BUILTIN, dir + "mbpBuiltin.icc");
+	}
+	
+	private DisplayProfiles() {
+	}
+	
+	/**
+	* Adds a display, or replaces how one is read if its converter has not been made yet
+	* 
+	* @param id The id to look the display up by
+	* @param loader Reads the display's profile
+	*/
+	public static void register(String id, Loader loader) {
+		synchronized(lock) {
+			if(converters.containsKey(id)) {
+				throw new IllegalStateException(id + " has already been loaded");
+			}
+			loaders.put(id, loader);
+		}
+	}
+	
+	/**
+	* Adds a display measured into a matrices file and a model file. The white point is
+	* the XYZ of red, green and blue at full strength together.
+	* 
+	* @param id The id to look the display up by
+	* @param matrixFile The name of the CSV file containing the RGB-XYZ matrices
+	* @param modelFile The name of the CSV file containing the gamma value and lower limits for each color channel
+	*/
+	public static void registerCSV(String id, final String matrixFile, final String modelFile) {
+		register(id, () -> new RGBLabConverter(matrixFile, modelFile));
+	}
+	
+	/**
+	* Adds a display described by a matrix/TRC ICC profile
+	* 
+	* @param id The id to look the display up by
+	* @param iccFile The name of the .icc file
+	*/
+	public static void registerICC(String id, final String iccFile) {
+		register(id, () -> ICCProfile.load(iccFile).converter());
+	}
+	
+	/**
+	* @return The ids of every display that has been added
+	*/
+	public static Set<String> ids() {
+		synchronized(lock) {
+			return new TreeSet<String>(loaders.keySet());
+		}
+	}
+	
+	/**
+	* Gets the converter for a display, reading its profile if this is the first time
+	* it has been asked for. If reading fails, the next call tries again. The converter
+	* computes every conversion directly. 
+	* 
+	* @param id The id of the display
+	* @return The shared, fixed converter
+	*/
+	public static RGBLabConverter get(String id) throws IOException {
+		RGBLabConverter converter = converters.get(id);
+		if(converter != null) {
+			return converter;
+		}
+		synchronized(lock) {
+			converter = converters.get(id);
+			if(converter == null) {
+				Loader loader = loaders.get(id);
+				if(loader == null) {
+					throw new IllegalArgumentException("No display with id " + id);
+				}
+				converter = loader.load().fixedCopy();
+				converters.put(id, converter);
+			}
+			return converter;
+		}
+	}
+	
+	/**
+	* Gets the converter for a display with its RGB to L*a*b* lookup table in use. The
+	* table is loaded from the cache directory, or built and written there if it is not
+	* cached yet, once for all callers. This is a different converter from the one get(id)
+	* gives, which keeps computing conversions directly. 
+	* 
+	* @param id The id of the display
+	* @param cacheDir The directory holding the cached tables
+	* @return The shared, fixed converter
+	*/
+	public static RGBLabConverter get(String id, File cacheDir) throws IOException {
+		final RGBLabConverter converter = get(id);
+		final File dir = cacheDir.getAbsoluteFile();
+		try {
+			return withTables.computeIfAbsent(id + File.pathSeparator + dir, key -> {
+				try {
+					return converter.withLookupTable(dir);
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -9,18 +9,12 @@
 
 import processing.core.PApplet;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 public class DrawTestImage {
 	
 	PApplet parent;
 	
-	public enum Direction {
-		UP, DOWN, LEFT, RIGHT
-	}
-	
-	private final double RADIANS_PER_DEGREE = 0.0174533;
-	private final double CUT_SIZE = 1/6.0;
-	
 	/**
 	* Constructor for use with PApplet
 	* @param p the PApplet for displaying the image
@@ -43,13 +37,54 @@ public class DrawTestImage {
 	* @param distFromScreen The distance the observer is from the screen, in meters 
 	* @param pixelsPerMeter The number of pixels in one meter for this screen - take the width in pixels and divide it by the width in meters of the screen 
 	*/
-	public void drawTestImage(ArrayList<Circle> circles, int[] center, int[] test, Direction dir, double distFromScreen, double pixelsPerMeter) {		
-		// To find the width of the image, we use a 2 degree field of view 
-		// Width in meters: distance observer is from the screen * tan(1 degree) 
-		int pixelsInOneDegree = (int)(distFromScreen*Math.tan(RADIANS_PER_DEGREE)*pixelsPerMeter);
-		int imgWidthInPixels = 2*pixelsInOneDegree; 
+	public void drawTestImage(ArrayList<Circle> circles, int[] center, int[] test, PlateGeometry.Direction dir, double distFromScreen, double pixelsPerMeter) {
+		drawTestImage(CircleLayout.fromCircles(circles), center, test, dir, distFromScreen, pixelsPerMeter);
+	}
+	
+	/**
+	* Draws the same image as the method above, reading the circles straight from
+	* a CircleSet, such as a CircleLayout or a layout in a LayoutPool. 
+	* 
+	* @param circles The circles that give the location and dimension of all circles in the image
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param dir The direction for the cut in the C 
+	* @param distFromScreen The distance the observer is from the screen, in meters 
+	* @param pixelsPerMeter The number of pixels in one meter for this screen - take the width in pixels and divide it by the width in meters of the screen 
+	*/
+	public void drawTestImage(CircleSet circles, int[] center, int[] test, PlateGeometry.Direction dir, double distFromScreen, double pixelsPerMeter) {
+		drawTestImage(new PreparedPlate(circles, dir), center, test, new SplittableRandom(), distFromScreen, pixelsPerMeter);
+	}
+	
+	/**
+	* Draws the image for a plate that has already been sorted into regions, 
+	* so only the colors need to be picked 
+	* 
+	* @param plate The layout of circles, sorted into regions for the direction of the C
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param random The source of the random color choices 
+	* @param distFromScreen The distance the observer is from the screen, in meters 
+	* @param pixelsPerMeter The number of pixels in one meter for this screen - take the width in pixels and divide it by the width in meters of the screen 
+	*/
+	public void drawTestImage(PreparedPlate plate, int[] center, int[] test, SplittableRandom random, double distFromScreen, double pixelsPerMeter) {
+		int imgWidthInPixels = PlateGeometry.imageWidth(distFromScreen, pixelsPerMeter);
 		parent.size(imgWidthInPixels, imgWidthInPixels);
 		
+		int[] colors = new int[plate.circles.size()];
+		plate.pickColors(center, test, random, colors);
+		drawPlate(plate.circles, colors);
+	}
+	
+	/**
+	* Draws circles whose colors have already been picked, filling the window. This does 
+	* not change the size of the window, so it can be called from draw() to draw the 
+	* same plate every frame. 
+	* 
+	* @param circles The circles that give the location and dimension of all circles in the image
+	* @param colors The color of each circle, such as from PreparedPlate.pickColors 
+	*/
+	public void drawPlate(CircleSet circles, int[] colors) {
 		// Set background color to black
 		parent.background(0);
 
@@ -62,50 +97,29 @@ public class DrawTestImage {
 		parent.noStroke();
 		parent.ellipseMode(parent.CENTER);
 		
-		// Use the direction the C opens to figure out the coordinate constraints
-		// for the cut, keeping in mind that the cut will be 1/6 of a degree
-		// Note: By translating the origin from the upper-left corner to the middle, 
-		// y increases down and decreases up from the origin, so that the negative
-		// y values are at the top half of the image and the positive y values are at the bottom 
-		double xMin, xMax, yMin, yMax; 
-		switch(dir) {
-			case UP: xMin = -CUT_SIZE; xMax = CUT_SIZE; yMin = -1; yMax = 0; 
-			break;
-			
-			case DOWN: xMin = -CUT_SIZE; xMax = CUT_SIZE; yMin = 0; yMax = 1;
-			break;
-			
-			case LEFT: xMin = -1; xMax = 0; yMin = -CUT_SIZE; yMax = CUT_SIZE;
-			break;
-			
-			case RIGHT: xMin = 0; xMax = 1; yMin = -CUT_SIZE; yMax = CUT_SIZE; 
-			break;
-			
-			default: xMin = 0; xMax = 0; yMin = 0; yMax = 0;
-		}
-		
-		// For each circle, calculate its distance from the center of the image
-		// to determine which color to use. The center ring in the image will be
-		// colored using randomly selected colors from the test array, and the 
-		// other circles will use randomly selected colors from the center array 
-		for(Circle c : circles) {
-			double d = Math.sqrt(c.x*c.x + c.y*c.y);
-			int index;
-			// Inner and outer rings should be the center color
-			if (d > 2/3.0 || d < 1/3.0) {
-				index = (int)(Math.random()*center.length);
-				parent.fill(center[index]);
-			// The cut of the C should be the center color
-			} else if(c.x >= xMin && c.x <= xMax && c.y >= yMin && c.y <= yMax) {
-				index = (int)(Math.random()*center.length);
-				parent.fill(center[index]);
-			// The actual circle should be the test color 
-			} else {
-				index = (int)(Math.random()*test.length);
-				parent.fill(test[index]);
-			}
+		for(int i = 0; i < circles.size(); i++) {
+			parent.fill(colors[i]);
 			// Draw the circle 
-			parent.ellipse((float)c.x, (float)c.y, 2*(float)c.r, 2*(float)c.r);
+			float r = (float)circles.r(i);
+			parent.ellipse((float)circles.x(i), (float)circles.y(i), 2*r, 2*r);
 		}
 	}
+	
+	/**
+	* Chooses the color of every circle. Circles in the inner and outer rings and in 
+	* the cut of the C get a random color from the center array, and the rest of the 
+	* middle ring (the C itself) gets a random color from the test array. This is shared
+	* by every way of drawing the image, so they all color the circles the same way. 
+	* To color the same layout many times, make a PreparedPlate once and use it instead. 
+	* 
+	* @param circles The circles to color
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param dir The direction for the cut in the C 
+	* @param random The source of the random color choices 
+	* @param colorsOut The array to write the color of each circle to 
+	*/
+	public static void pickColors(CircleSet circles, int[] center, int[] test, PlateGeometry.Direction dir, SplittableRandom random, int[] colorsOut) {
+		new PreparedPlate(circles, dir).pickColors(center, test, random, colorsOut);
+	}
 }
\ No newline at end of file
@@ -5,12 +5,20 @@
 * @version 2017-03-26
 */
 import processing.core.PApplet;
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 public class DrawTestImageSketch extends PApplet{
 	
+	// The viewing distance in meters and the pixels per meter of the screen 
+	private static final double DIST_FROM_SCREEN = 2.4;
+	private static final double PIXELS_PER_METER = 4481.6273;
+	
 	private int[] center;
 	private int[] test;
+	private DrawTestImage dti;
+	private PreparedPlate plate;
+	private int[] colors;
+	private FrameTimer timer;
 	
 	public static void main(String[] args) {
 		// Run the main applet
@@ -18,16 +26,20 @@ public class DrawTestImageSketch extends PApplet{
 	}
 	
 	/**
-	* Required for Processing in Java 
+	* Required for Processing in Java; the window is the size of the 2 degree image 
 	*/
 	public void settings() {
-		size(512, 512);
+		int imgWidthInPixels = PlateGeometry.imageWidth(DIST_FROM_SCREEN, PIXELS_PER_METER);
+		size(imgWidthInPixels, imgWidthInPixels);
 	}
 	
 	/**
 	* Sets up the image to display 
 	*/ 
 	public void setup() {
+		timer = new FrameTimer(3600, 60);
+		timer.beginSetup();
+		
 		// Create two arrays of different colors 
 		center = new int[5];
 		test = new int[5];
@@ -42,18 +54,31 @@ public class DrawTestImageSketch extends PApplet{
 		test[3] = color(186, 182, 14);
 		test[4] = color(239, 234, 4);
 		
-		// Make the circles 
-		ArrayList<Circle> circles = CircleMaker.makeCircles();
-		
-		// Make a new test image and draw it for this applet using the two color arrays 
-		DrawTestImage dti = new DrawTestImage(this);
-		dti.drawTestImage(circles, center, test, DrawTestImage.Direction.RIGHT, 2.4, 4481.6273);
+		// Make the circles, sort them into the parts of the C, and pick their colors 
+		CircleLayout layout = new CircleMaker().makeLayout(System.nanoTime());
+		plate = new PreparedPlate(layout, PlateGeometry.Direction.RIGHT);
+		colors = new int[layout.size()];
+		plate.pickColors(center, test, new SplittableRandom(), colors);
+		dti = new DrawTestImage(this);
+		timer.endSetup();
+		// The plate is drawn by the first frame and shown when it ends 
+		timer.stimulusReady();
 	}
 	
 	/**
-	* Required to display the image. Redraws 60 times per second. 
+	* Required to display the image. Redraws the test image 60 times per second. 
 	*/
 	public void draw() {
-		
+		timer.beginFrame();
+		dti.drawPlate(plate.circles, colors);
+		timer.endFrame();
+	}
+	
+	/**
+	* Prints the frame times when the sketch closes 
+	*/
+	public void exit() {
+		timer.dump(System.out);
+		super.exit();
 	}
-}
\ No newline at end of file
+}
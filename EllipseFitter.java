@@ -0,0 +1,403 @@
+/**
+* Fits color discrimination ellipses to thresholds. Each threshold is a color the 
+* test subject could just tell apart from the center color, so the thresholds in all 
+* directions around a center outline an ellipse in the a*b* plane (or an ellipsoid in 
+* L*a*b*). The fit finds the symmetric matrix M that makes (p - center)' M (p - center) 
+* as close to 1 as possible, in the least squares sense, over the thresholds p. That is
+* a linear problem in the 3 (or 6) values of M, so it is solved from its normal
+* equations, and if the result is not an ellipse (M is not positive definite) its 
+* bad axes are set to be very long. 
+* 
+* Many centers (for many subjects) can be fitted at once in parallel from flat arrays
+* of points, and an Incremental fit can be refitted cheaply as thresholds come in. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class EllipseFitter {
+	
+	// An axis that comes out this many times longer than the farthest point is an 
+	// axis the points do not pin down 
+	private static final double MAX_AXIS_FACTOR = 100;
+	
+	/**
+	* Gets the thresholds of staircases in several hue directions as points in the a*b* plane 
+	* 
+	* @param a The a* of the center color 
+	* @param b The b* of the center color 
+	* @param hueAngles The direction of each staircase in the a*b* plane, in radians 
+	* @param thresholds The threshold (distance from the center) in each direction 
+	* @return The points, as a*b* pairs one after another 
+	*/
+	public static double[] thresholdPoints(double a, double b, double[] hueAngles, double[] thresholds) {
+		double[] points = new double[2*hueAngles.length];
+		for(int k = 0; k < hueAngles.length; k++) {
+			points[2*k] = a + thresholds[k]*Math.cos(hueAngles[k]);
+			points[2*k + 1] = b + thresholds[k]*Math.sin(hueAngles[k]);
+		}
+		return points;
+	}
+	
+	/**
+	* Fits an ellipse (in a*b*) or ellipsoid (in L*a*b*) to threshold colors given in 
+	* RGB, converting them with the display's converter 
+	* 
+	* @param converter The converter for the display the thresholds were measured on 
+	* @param centerRGB The center color 
+	* @param thresholdRGB The threshold colors 
+	* @param dims 2 for an ellipse in a*b*, 3 for an ellipsoid in L*a*b* 
+	* @return The fitted ellipse 
+	*/
+	public static ColorEllipse fitRGB(RGBLabConverter converter, int centerRGB, int[] thresholdRGB, int dims) {
+		double[] centerLab = new double[3];
+		converter.RGBToLab(centerRGB, centerLab, 0);
+		double[] lab = new double[3*thresholdRGB.length];
+		converter.convertRGBToLab(thresholdRGB, lab);
+		int skip = 3 - checkDims(dims);
+		double[] points = new double[dims*thresholdRGB.length];
+		for(int k = 0; k < thresholdRGB.length; k++) {
+			System.arraycopy(lab, 3*k + skip, points, dims*k, dims);
+		}
+		return fit(dims, Arrays.copyOfRange(centerLab, skip, 3), points, 0, thresholdRGB.length);
+	}
+	
+	/**
+	* Fits one ellipse or ellipsoid 
+	* 
+	* @param dims 2 for an ellipse in a*b*, 3 for an ellipsoid in L*a*b* 
+	* @param center The center color (a*b* or L*a*b*) 
+	* @param points The threshold colors, dims values each, one after another 
+	* @param from The first point to use 
+	* @param to One past the last point to use 
+	* @return The fitted ellipse 
+	*/
+	public static ColorEllipse fit(int dims, double[] center, double[] points, int from, int to) {
+		int p = params(checkDims(dims));
+		double[] normal = new double[p*p];
+		double[] rhs = new double[p];
+		double[] f = new double[p];
+		for(int k = from; k < to; k++) {
+			accumulate(dims, center, 0, points, dims*k, f, normal, rhs);
+		}
+		return solve(dims, center.clone(), normal, rhs, points, from, to);
+	}
+	
+	/**
+	* Fits many ellipses or ellipsoids in parallel. Fit c uses the center at 
+	* centers[dims*c] and the points pointStart[c] up to pointStart[c+1]. 
+	* 
+	* @param dims 2 for ellipses in a*b*, 3 for ellipsoids in L*a*b* 
+	* @param centers The center colors, dims values each, one after another 
+	* @param points The threshold colors of all the fits, dims values each, one after another 
+	* @param pointStart Where each fit's points start, with one more entry at the end for where the last fit's points end 
+	* @return The fitted ellipses, in the order of the centers 
+	*/
+	public static ColorEllipse[] fitAll(final int dims, final double[] centers, final double[] points, final int[] pointStart) {
+		checkDims(dims);
+		final ColorEllipse[] fits = new ColorEllipse[pointStart.length - 1];
+		IntStream.range(0, fits.length).parallel().forEach(c -> 
+			fits[c] = fit(dims, Arrays.copyOfRange(centers, dims*c, dims*c + dims), points, pointStart[c], pointStart[c + 1]));
+		return fits;
+	}
+	
+	/**
+	* A fit around one center that keeps the sums it needs as thresholds are added, 
+	* so refitting after each new threshold only has to solve a 3x3 (or 6x6) system 
+	* and measure the residuals. 
+	*/
+	public static class Incremental {
+		private final int dims;
+		private final double[] center;
+		private final double[] normal;
+		private final double[] rhs;
+		private final double[] f;
+		private double[] points;
+		private int n;
+		
+		/**
+		* Constructor for an Incremental fit 
+		* 
+		* @param center The center color: a*b* for an ellipse, L*a*b* for an ellipsoid 
+		*/
+		public Incremental(double[] center) {
+			this.dims = checkDims(center.length);
+			this.center = center.clone();
+			int p = params(dims);
+			this.normal = new double[p*p];
+			this.rhs = new double[p];
+			this.f = new double[p];
+			this.points = new double[16*dims];
+		}
+		
+		/**
+		* Adds a threshold 
+		* 
+		* @param point The threshold color, with as many values as the center 
+		*/
+		public void add(double[] point) {
+			if(point.length != dims) {
+				throw new IllegalArgumentException("Point must have " + dims + " values");
+			}
+			if(dims*(n + 1) > points.length) {
+				points = Arrays.copyOf(points, 2*points.length);
+			}
+			System.arraycopy(point, 0, points, dims*n, dims);
+			accumulate(dims, center, 0, points, dims*n, f, normal, rhs);
+			n++;
+		}
+		
+		/**
+		* @return The number of thresholds added 
+		*/
+		public int size() {
+			return n;
+		}
+		
+		/**
+		* @return The ellipse for the thresholds added so far 
+		*/
+		public ColorEllipse fit() {
+			return solve(dims, center.clone(), normal.clone(), rhs.clone(), points, 0, n);
+		}
+	}
+	
+	private static int checkDims(int dims) {
+		if(dims != 2 && dims != 3) {
+			throw new IllegalArgumentException("Can only fit ellipses in 2 or 3 dimensions");
+		}
+		return dims;
+	}
+	
+	private static int params(int dims) {
+		return dims == 2 ? 3 : 6;
+	}
+	
+	// The values of M are ordered M00, M11, (M22,) M01, (M02, M12), so for the 
+	// offset v from the center, (v' M v) is f . m with f = (x^2, y^2, (z^2,) 2xy, (2xz, 2yz)) 
+	private static void features(int dims, double[] v, double[] f) {
+		if(dims == 2) {
+			f[0] = v[0]*v[0];
+			f[1] = v[1]*v[1];
+			f[2] = 2*v[0]*v[1];
+		} else {
+			f[0] = v[0]*v[0];
+			f[1] = v[1]*v[1];
+			f[2] = v[2]*v[2];
+			f[3] = 2*v[0]*v[1];
+			f[4] = 2*v[0]*v[2];
+			f[5] = 2*v[1]*v[2];
+		}
+	}
+	
+	// Adds one point to the normal equations (sum f f') m = sum f 
+	private static void accumulate(int dims, double[] center, int c, double[] points, int at, double[] f, double[] normal, double[] rhs) {
+		double[] v = new double[dims];
+		for(int i = 0; i < dims; i++) {
+			v[i] = points[at + i] - center[c + i];
+		}
+		features(dims, v, f);
+		int p = f.length;
+		for(int i = 0; i < p; i++) {
+			rhs[i] += f[i];
+			for(int j = 0; j < p; j++) {
+				normal[i*p + j] += f[i]*f[j];
+			}
+		}
+	}
+	
+	// Solves the normal equations (destroying them), makes M an ellipse if it is 
+	// not one, and measures how far the points are from it 
+	private static ColorEllipse solve(int dims, double[] center, double[] normal, double[] rhs, double[] points, int from, int to) {
+		int p = rhs.length;
+		// Gaussian elimination with partial pivoting 
+		double scale = 0;
+		for(double x : normal) {
+			scale = Math.max(scale, Math.abs(x));
+		}
+		for(int col = 0; col < p; col++) {
+			int pivot = col;
+			for(int row = col + 1; row < p; row++) {
+				if(Math.abs(normal[row*p + col]) > Math.abs(normal[pivot*p + col])) {
+					pivot = row;
+				}
+			}
+			if(Math.abs(normal[pivot*p + col]) <= 1e-12*scale) {
+				throw new IllegalArgumentException("Need at least " + p + " thresholds in different directions to fit an ellipse");
+			}
+			if(pivot != col) {
+				for(int j = 0; j < p; j++) {
+					double t = normal[col*p + j];
+					normal[col*p + j] = normal[pivot*p + j];
+					normal[pivot*p + j] = t;
+				}
+				double t = rhs[col];
+				rhs[col] = rhs[pivot];
+				rhs[pivot] = t;
+			}
+			for(int row = col + 1; row < p; row++) {
+				double factor = normal[row*p + col] / normal[col*p + col];
+				for(int j = col; j < p; j++) {
+					normal[row*p + j] -= factor*normal[col*p + j];
+				}
+				rhs[row] -= factor*rhs[col];
+			}
+		}
+		double[] m = new double[p];
+		for(int row = p - 1; row >= 0; row--) {
+			double sum = rhs[row];
+			for(int j = row + 1; j < p; j++) {
+				sum -= normal[row*p + j]*m[j];
+			}
+			m[row] = sum / normal[row*p + row];
+		}
+		
+		double[] matrix = new double[dims*dims];
+		if(dims == 2) {
+			matrix[0] = m[0];
+			matrix[3] = m[1];
+			matrix[1] = matrix[2] = m[2];
+		} else {
+			matrix[0] = m[0];
+			matrix[4] = m[1];
+			matrix[8] = m[2];
+			matrix[1] = matrix[3] = m[3];
+			matrix[2] = matrix[6] = m[4];
+			matrix[5] = matrix[7] = m[5];
+		}
+		
+		// The axes are 1/sqrt of the eigenvalues of M. Eigenvalues that are too small 
+		// (or not positive, so not an ellipse) are raised to give a very long axis 
+		double farthest = 0;
+		for(int k = from; k < to; k++) {
+			double len = 0;
+			for(int i = 0; i < dims; i++) {
+				double d = points[dims*k + i] - center[i];
+				len += d*d;
+			}
+			farthest = Math.max(farthest, len);
+		}
+		double minEigen = 1 / (MAX_AXIS_FACTOR*MAX_AXIS_FACTOR*farthest);
+		double[] eigenvalues = new double[dims];
+		double[] vectors = new double[dims*dims];
+		eigen(dims, matrix, eigenvalues, vectors);
+		boolean constrained = false;
+		for(int i = 0; i < dims; i++) {
+			if(!(eigenvalues[i] >= minEigen)) {
+				eigenvalues[i] = minEigen;
+				constrained = true;
+			}
+		}
+		if(constrained) {
+			for(int i = 0; i < dims; i++) {
+				for(int j = 0; j < dims; j++) {
+					double sum = 0;
+					for(int k = 0; k < dims; k++) {
+						sum += vectors[k*dims + i]*eigenvalues[k]*vectors[k*dims + j];
+					}
+					matrix[i*dims + j] = sum;
+				}
+			}
+		}
+		double[] axes = new double[dims];
+		for(int i = 0; i < dims; i++) {
+			axes[i] = 1 / Math.sqrt(eigenvalues[i]);
+		}
+		
+		// Distance from each point to the ellipse along the line from the center 
+		double sumSq = 0;
+		double max = 0;
+		double[] v = new double[dims];
+		for(int k = from; k < to; k++) {
+			double len = 0;
+			double q = 0;
+			for(int i = 0; i < dims; i++) {
+				v[i] = points[dims*k + i] - center[i];
+				len += v[i]*v[i];
+			}
+			for(int i = 0; i < dims; i++) {
+				for(int j = 0; j < dims; j++) {
+					q += v[i]*matrix[i*dims + j]*v[j];
+				}
+			}
+			double r = Math.sqrt(len);
+			double residual = r - Math.sqrt(len / q);
+			sumSq += residual*residual;
+			max = Math.max(max, Math.abs(residual));
+		}
+		double rms = to > from ? Math.sqrt(sumSq / (to - from)) : 0;
+		return new ColorEllipse(dims, center, matrix, axes, vectors, rms, max, to - from, constrained);
+	}
+	
+	// Eigenvalues (smallest first) and unit eigenvectors (one after another) of a 
+	// symmetric 2x2 or 3x3 matrix, by Jacobi rotations 
+	private static void eigen(int n, double[] matrix, double[] values, double[] vectors) {
+		double[] a = matrix.clone();
+		double[] v = new double[n*n];
+		for(int i = 0; i < n; i++) {
+			v[i*n + i] = 1;
+		}
+		for(int sweep = 0; sweep < 50; sweep++) {
+			double off = 0;
+			for(int i = 0; i < n; i++) {
+				for(int j = i + 1; j < n; j++) {
+					off += a[i*n + j]*a[i*n + j];
+				}
+			}
+			if(off == 0) {
+				break;
+			}
+			for(int p = 0; p < n; p++) {
+				for(int q = p + 1; q < n; q++) {
+					double apq = a[p*n + q];
+					if(apq == 0) {
+						continue;
+					}
+					double theta = (a[q*n + q] - a[p*n + p]) / (2*apq);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta*theta + 1));
+					if(theta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(t*t + 1);
+					double s = t*c;
+					for(int k = 0; k < n; k++) {
+						double akp = a[k*n + p];
+						double akq = a[k*n + q];
+						a[k*n + p] = c*akp - s*akq;
+						a[k*n + q] = s*akp + c*akq;
+					}
+					for(int k = 0; k < n; k++) {
+						double apk = a[p*n + k];
+						double aqk = a[q*n + k];
+						a[p*n + k] = c*apk - s*aqk;
+						a[q*n + k] = s*apk + c*aqk;
+					}
+					for(int k = 0; k < n; k++) {
+						double vkp = v[k*n + p];
+						double vkq = v[k*n + q];
+						v[k*n + p] = c*vkp - s*vkq;
+						v[k*n + q] = s*vkp + c*vkq;
+					}
+				}
+			}
+		}
+		// Sort smallest eigenvalue (longest axis) first; eigenvector i is column i of v 
+		Integer[] order = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		final double[] diag = new double[n];
+		for(int i = 0; i < n; i++) {
+			diag[i] = a[i*n + i];
+		}
+		Arrays.sort(order, (x, y) -> Double.compare(diag[x], diag[y]));
+		for(int i = 0; i < n; i++) {
+			values[i] = diag[order[i]];
+			for(int k = 0; k < n; k++) {
+				vectors[i*n + k] = v[k*n + order[i]];
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/**
+* Keeps track of how long frames take to draw and how far apart they are shown, so
+* we can check that stimuli were shown when we think they were. Call beginFrame() at 
+* the start of draw() and endFrame() at the end, around the code that draws the plate. 
+* setup() is timed on its own with beginSetup() and endSetup(), since it is not a frame:
+* counting it as one would turn the time taken to open the window into missed frames. 
+* Times are taken with System.nanoTime() and kept in ring buffers that are made once, 
+* so timing a frame does not allocate anything and only the last few thousand frames 
+* are kept. 
+* 
+* A frame misses its deadline when it comes more than half a frame late; a gap of
+* several frame periods counts as several missed frames. Deadlines start with the 
+* first frame. 
+* 
+* Processing shows what draw() drew after draw() returns, and the next frame does not
+* start until it has, so the latency of a stimulus runs from stimulusReady() to the 
+* start of the frame after the one that drew it. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+public class FrameTimer {
+	
+	private final long periodNanos;
+	private final long[] renderNanos;
+	private final long[] intervalNanos;
+	private final long[] sorted;
+	
+	private long frames;
+	private long intervals;
+	private long missedFrames;
+	private long frameStart;
+	private long lastFrameStart;
+	private long setupStart;
+	private long setupNanos = -1;
+	// Whether a stimulus is ready and waiting to be drawn, and whether it has been 
+	// drawn and is waiting to be shown 
+	private boolean stimulusPending;
+	private boolean stimulusDrawn;
+	private long stimulusReadyAt;
+	private long lastLatencyNanos = -1;
+	
+	/**
+	* Constructor for a FrameTimer 
+	* 
+	* @param capacity The number of most recent frames to keep times for 
+	* @param targetFrameRate The frame rate the sketch runs at, in frames per second 
+	*/
+	public FrameTimer(int capacity, double targetFrameRate) {
+		if(capacity <= 0 || targetFrameRate <= 0) {
+			throw new IllegalArgumentException("Capacity and frame rate must be positive");
+		}
+		this.periodNanos = (long)(1e9/targetFrameRate);
+		this.renderNanos = new long[capacity];
+		this.intervalNanos = new long[capacity];
+		this.sorted = new long[capacity];
+	}
+	
+	/**
+	* Marks the start of setup() 
+	*/
+	public void beginSetup() {
+		setupStart = System.nanoTime();
+	}
+	
+	/**
+	* Marks the end of setup() and records how long it took 
+	*/
+	public void endSetup() {
+		setupNanos = System.nanoTime() - setupStart;
+	}
+	
+	/**
+	* Marks the start of a frame and records the time since the last one started. If 
+	* the last frame drew a stimulus, it has now been shown, so this records its latency. 
+	*/
+	public void beginFrame() {
+		long now = System.nanoTime();
+		if(stimulusDrawn) {
+			lastLatencyNanos = now - stimulusReadyAt;
+			stimulusDrawn = false;
+		}
+		if(frames > 0) {
+			long interval = now - lastFrameStart;
+			intervalNanos[(int)(intervals % intervalNanos.length)] = interval;
+			intervals++;
+			if(2*interval > 3*periodNanos) {
+				missedFrames += Math.max(1, (interval + periodNanos/2)/periodNanos - 1);
+			}
+		}
+		lastFrameStart = now;
+		frameStart = now;
+	}
+	
+	/**
+	* Marks the end of a frame and records how long it took to draw. A stimulus that 
+	* was ready before this frame has now been drawn, and is shown once the frame ends. 
+	*/
+	public void endFrame() {
+		long now = System.nanoTime();
+		renderNanos[(int)(frames % renderNanos.length)] = now - frameStart;
+		frames++;
+		if(stimulusPending) {
+			stimulusDrawn = true;
+			stimulusPending = false;
+		}
+	}
+	
+	/**
+	* Marks that a new stimulus has been made and will be drawn by the next frame to end 
+	*/
+	public void stimulusReady() {
+		stimulusReadyAt = System.nanoTime();
+		stimulusPending = true;
+	}
+	
+	/**
+	* @return The number of frames timed so far 
+	*/
+	public long frames() {
+		return frames;
+	}
+	
+	/**
+	* @return The number of frames that missed their deadline so far 
+	*/
+	public long missedFrames() {
+		return missedFrames;
+	}
+	
+	/**
+	* @return The time setup() took, in milliseconds, or -1 if it has not been timed 
+	*/
+	public double setupTime() {
+		return setupNanos < 0 ? -1 : setupNanos/1e6;
+	}
+	
+	/**
+	* @return The time from the last stimulus being ready to the start of the frame after the one that drew it, in milliseconds, or -1 if there has not been one 
+	*/
+	public double lastStimulusLatency() {
+		return lastLatencyNanos < 0 ? -1 : lastLatencyNanos/1e6;
+	}
+	
+	/**
+	* Gets a percentile of the time taken to draw the most recent frames 
+	* 
+	* @param p The percentile, from 0 to 100 
+	* @return The draw time at that percentile, in milliseconds, or 0 if no frames have been timed 
+	*/
+	public double renderPercentile(double p) {
+		return percentile(renderNanos, frames, p);
+	}
+	
+	/**
+	* Gets a percentile of the time between the starts of the most recent frames 
+	* 
+	* @param p The percentile, from 0 to 100 
+	* @return The time between frames at that percentile, in milliseconds, or 0 if there have not been two frames 
+	*/
+	public double intervalPercentile(double p) {
+		return percentile(intervalNanos, intervals, p);
+	}
+	
+	// Nearest-rank percentile of the kept values, sorted in the scratch array 
+	private double percentile(long[] ring, long count, double p) {
+		int n = (int)Math.min(count, ring.length);
+		if(n == 0) {
+			return 0;
+		}
+		System.arraycopy(ring, 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		int rank = (int)Math.ceil(p/100*n);
+		return sorted[Math.min(n, Math.max(1, rank)) - 1]/1e6;
+	}
+	
+	/**
+	* @return A one-line summary of the frame times 
+	*/
+	public String summary() {
+		return String.format("setup %.3f ms; stimulus latency %.3f ms; %d frames, %d missed; draw p50 %.3f p99 %.3f max %.3f ms; interval p50 %.3f p99 %.3f max %.3f ms", 
+			setupTime(), lastStimulusLatency(), frames, missedFrames, 
+			renderPercentile(50), renderPercentile(99), renderPercentile(100), 
+			intervalPercentile(50), intervalPercentile(99), intervalPercentile(100));
+	}
+	
+	/**
+	* Prints the summary and then the kept frame times, oldest first, one frame per line 
+	* (draw time and the time since the frame before, in milliseconds) 
+	* 
+	* @param out Where to print 
+	*/
+	public void dump(PrintStream out) {
+		out.println(summary());
+		int n = (int)Math.min(frames, renderNanos.length);
+		long first = frames - n;
+		out.println("frame,draw_ms,interval_ms");
+		for(long f = first; f < frames; f++) {
+			// Frame f > 0 started interval f - 1 after the frame before it 
+			String interval = "";
+			if(f > 0 && f - 1 >= intervals - intervalNanos.length && f - 1 < intervals) {
+				interval = String.format("%.3f", intervalNanos[(int)((f - 1) % intervalNanos.length)]/1e6);
+			}
+			out.println(f + "," + String.format("%.3f", renderNanos[(int)(f % renderNanos.length)]/1e6) + "," + interval);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/**
+* The transfer function from model.csv: one gamma for all three channels, with a lower
+* limit for each channel that corrects for the display never measuring quite black. 
+* A code value uncompresses to lowerLimit + (1 - lowerLimit) * (code/255)^gamma. 
+* 
+* @version 2026-10-18
+*/
+public class GammaTransfer implements TransferFunction {
+	
+	private final double gamma;
+	private final double[] lowerLimits;
+	
+	/**
+	* Constructor for a GammaTransfer 
+	* 
+	* @param gamma The value of gamma 
+	* @param lowerLimits The lower limit of red, green and blue 
+	*/
+	public GammaTransfer(double gamma, double[] lowerLimits) {
+		this.gamma = gamma;
+		this.lowerLimits = lowerLimits.clone();
+	}
+	
+	/**
+	* Takes a compressed RGB value from a color channel (red, green, or blue) and 
+	* uncompresses it according to the model lowerLimit+(1-lowerLimit)*POW(value,gamma)
+	*/
+	public double uncompress(int code, int channel) {
+		double lowerLimit = lowerLimits[channel];
+		return lowerLimit + (1-lowerLimit)*Math.pow(code/255.0, gamma);
+	}
+	
+	public double uncompressFraction(double code, int channel) {
+		double lowerLimit = lowerLimits[channel];
+		return lowerLimit + (1-lowerLimit)*Math.pow(Math.min(Math.max(code, 0), 255)/255.0, gamma);
+	}
+	
+	/**
+	* Converts a linear RGB value for a specific color channel (red, green, or blue) 
+	* to a gamma-compressed, device-specific RGB value based on a value of
+	* gamma and a lower limit (the lowest value in the data for a given display).
+	* Uses the model: POWER((value-lowerLimit)/(1-lowerLimit), 1/gamma)
+	*/
+	public double compress(double linear, int channel) {
+		double lowerLimit = lowerLimits[channel];
+		// Values below the lower limit would give Math.pow a negative base (and NaN), 
+		// so clamp before taking the power 
+		return 255*Math.pow(Math.min(Math.max(0, (linear - lowerLimit)/(1-lowerLimit)), 1), 1/gamma);
+	}
+	
+	public double[] parameters() {
+		return new double[] {gamma, lowerLimits[0], lowerLimits[1], lowerLimits[2]};
+	}
+}
@@ -0,0 +1,295 @@
+/**
+* The edge of the colors a display can show, as the largest chroma it reaches at each
+* of a grid of L* values and hue angles. RGBLabConverter quietly clamps colors it cannot
+* show to the nearest ones it can, so a staircase stepping outward in one hue direction
+* could keep showing the same clipped color; with the boundary, stimulus planners can
+* find how far they can step before that happens without converting each candidate.
+* 
+* Each grid point is found by bisection on chroma through the converter, with all the
+* points built in parallel. Between grid points, maxChroma interpolates bilinearly in
+* L* and hue, which cuts the corners off the gamut: the most saturated colors, such as
+* the primaries, lie between grid points and beyond the interpolated chroma. So
+* isInGamut only answers from the grid for colors farther than one grid cell (the
+* spread of the four grid points around them, or the width of a hue step, whichever is
+* larger) from the boundary; colors closer than that are converted and checked
+* exactly, as are colors near L* values where not even the gray can be shown. The
+* answer is exact except where the colors of one L* and hue are not a single run out
+* from gray. Next to the yellow corner, the gamut can fold over so that such a line
+* leaves it and comes back in. The boundary stops at the first edge, so the colors past
+* the fold are reported out of gamut. For the profiles in DisplayMeasurement that is a
+* sliver above L* 95 at hues near 100 degrees: 3 of every 17000 codes on the MacBook
+* and none on the Dell. 
+* 
+* Boundaries are built lazily, once per display profile and resolution, and are never
+* changed after they are built, so one boundary can be shared by any number of threads.
+* The cache holds each boundary until it is released, as LabToRGBGrid does its grids:
+* whoever makes a converter for a profile used only for a while should call
+* release(converter) when done with it. 
+* 
+* @version 2026-10-18
+*/
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+public class GamutBoundary {
+	
+	/** The largest chroma searched; no display comes close to it */
+	public static final double MAX_CHROMA = 200;
+	
+	// The number of halvings of the chroma range for each grid point
+	private static final int BISECTIONS = 28;
+	// How far outside of a display's linear range still counts as in gamut. Converting
+	// a code to L*a*b* and back is off by up to about 1e-8 from rounding; the darkest 
+	// step between codes is still about 5e-6 
+	private static final double TOLERANCE = 1e-7;
+	// The distance maxStep moves between checks, finer than the spacing of the grid 
+	// points around the edge of the gamut (a degree of hue at chroma 30 or more) 
+	private static final double MARCH_STEP = 0.5;
+	
+	// One boundary per display profile and resolution
+	private static final ConcurrentHashMap<String, GamutBoundary> boundaries = new ConcurrentHashMap<String, GamutBoundary>();
+	
+	private final int lSteps;
+	private final int hueSteps;
+	private final double lStep;
+	private final double hueStep;
+	// For the exact checks near the boundary 
+	private final RGBLabConverter converter;
+	private final double[] range;
+	// The largest chroma at each grid point, with hue varying fastest; negative if
+	// not even the gray with that L* can be shown
+	private final float[] chroma;
+	
+	/**
+	* Gets the boundary for a converter's display profile with one grid point for each
+	* whole L* value and each degree of hue, building it if this is the first time
+	* 
+	* @param converter The converter for the display profile
+	* @return The shared boundary
+	*/
+	public static GamutBoundary forConverter(RGBLabConverter converter) {
+		return forConverter(converter, 101, 360);
+	}
+	
+	/**
+	* Gets the boundary for a converter's display profile, building it if this is the
+	* first time this profile and resolution have been asked for
+	* 
+	* @param converter The converter for the display profile
+	* @param lSteps The number of grid points from L* 0 to L* 100, at least 2
+	* @param hueSteps The number of grid points around the hue circle, at least 3
+	* @return The shared boundary
+	*/
+	public static GamutBoundary forConverter(final RGBLabConverter converter, final int lSteps, final int hueSteps) {
+		if(lSteps < 2 || hueSteps < 3) {
+			throw new IllegalArgumentException("The boundary needs at least 2 L* values and 3 hue angles");
+		}
+		return boundaries.computeIfAbsent(converter.profileKey() + "/" + lSteps + "x" + hueSteps,
+			key -> new GamutBoundary(converter, lSteps, hueSteps));
+	}
+	
+	/**
+	* Drops every boundary built for a converter's display profile from the cache, at any 
+	* resolution. Boundaries already handed out keep working; they are only no longer shared 
+	* with callers that ask later, who get new ones. 
+	* 
+	* @param converter A converter for the display profile 
+	*/
+	public static void release(RGBLabConverter converter) {
+		String prefix = converter.profileKey() + "/";
+		boundaries.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+	
+	/**
+	* Drops every boundary from the cache 
+	*/
+	public static void clear() {
+		boundaries.clear();
+	}
+	
+	/**
+	* Builds the boundary in parallel
+	* 
+	* @param converter The converter to test colors with
+	* @param lSteps The number of grid points from L* 0 to L* 100
+	* @param hueSteps The number of grid points around the hue circle
+	*/
+	private GamutBoundary(final RGBLabConverter converter, int lSteps, int hueSteps) {
+		this.lSteps = lSteps;
+		this.hueSteps = hueSteps;
+		this.lStep = 100.0 / (lSteps - 1);
+		this.hueStep = 2*Math.PI / hueSteps;
+		this.chroma = new float[lSteps * hueSteps];
+		this.converter = converter;
+		this.range = new double[6];
+		// The linear values where the transfer functions stop at code 0 and code 255, 
+		// which for a measured LUT are the ends of the monotone curve it compresses with 
+		for(int c = 0; c < 3; c++) {
+			range[2*c] = converter.codeStart(0, c) - TOLERANCE;
+			range[2*c + 1] = converter.codeStart(255, c) + TOLERANCE;
+		}
+		IntStream.range(0, chroma.length).parallel().forEach(i -> {
+			double l = (i / this.hueSteps) * lStep;
+			double hue = (i % this.hueSteps) * hueStep;
+			chroma[i] = (float)search(converter, range, l, Math.cos(hue), Math.sin(hue));
+		});
+	}
+	
+	/**
+	* Finds the largest chroma that can be shown at one L* and hue. The colors that can
+	* be shown along a line of constant L* and hue run from gray out to the edge, so
+	* bisection finds the edge.
+	* 
+	* @return The largest chroma, or -1 if not even the gray can be shown
+	*/
+	private static double search(RGBLabConverter converter, double[] range, double l, double cos, double sin) {
+		double[] rgb = new double[3];
+		if(!shown(converter, range, l, 0, 0, rgb)) {
+			return -1;
+		}
+		if(shown(converter, range, l, MAX_CHROMA*cos, MAX_CHROMA*sin, rgb)) {
+			return MAX_CHROMA;
+		}
+		double in = 0;
+		double out = MAX_CHROMA;
+		for(int k = 0; k < BISECTIONS; k++) {
+			double mid = 0.5*(in + out);
+			if(shown(converter, range, l, mid*cos, mid*sin, rgb)) {
+				in = mid;
+			} else {
+				out = mid;
+			}
+		}
+		return in;
+	}
+	
+	// Whether every linear channel of the color falls between the display's darkest and brightest
+	private static boolean shown(RGBLabConverter converter, double[] range, double l, double a, double b, double[] rgb) {
+		converter.computeLabToLinearRGB(l, a, b, rgb, 0);
+		for(int c = 0; c < 3; c++) {
+			if(!(rgb[c] >= range[2*c] && rgb[c] <= range[2*c + 1])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	* Gets the largest chroma the display can show at an L* and hue, interpolated from
+	* the grid points around them
+	* 
+	* @param l The L* value, from 0 to 100
+	* @param hue The hue angle in radians, measured from the +a* axis toward +b*
+	* @return The largest chroma, or a negative number if no color with this L* can be shown
+	*/
+	public double maxChroma(double l, double hue) {
+		if(!(l >= 0 && l <= 100)) {
+			return -1;
+		}
+		double lPos = l / lStep;
+		int l0 = Math.min((int)lPos, lSteps - 2);
+		double lt = lPos - l0;
+		double huePos = hue / hueStep;
+		huePos -= hueSteps * Math.floor(huePos / hueSteps);
+		int h0 = Math.min((int)huePos, hueSteps - 1);
+		double ht = huePos - h0;
+		int h1 = h0 + 1 == hueSteps ? 0 : h0 + 1;
+		int row0 = l0 * hueSteps;
+		int row1 = row0 + hueSteps;
+		double below = chroma[row0 + h0] + ht*(chroma[row0 + h1] - chroma[row0 + h0]);
+		double above = chroma[row1 + h0] + ht*(chroma[row1 + h1] - chroma[row1 + h0]);
+		return below + lt*(above - below);
+	}
+	
+	/**
+	* Checks whether the display can show a color without clamping it. Colors within
+	* one grid cell of the boundary are converted and checked exactly. 
+	* 
+	* @param l The L* value of the color
+	* @param a The a* value of the color
+	* @param b The b* value of the color
+	* @return true if the color is inside the boundary
+	*/
+	public boolean isInGamut(double l, double a, double b) {
+		if(!(l >= 0 && l <= 100)) {
+			return false;
+		}
+		double lPos = l / lStep;
+		int l0 = Math.min((int)lPos, lSteps - 2);
+		double huePos = Math.atan2(b, a) / hueStep;
+		huePos -= hueSteps * Math.floor(huePos / hueSteps);
+		int h0 = Math.min((int)huePos, hueSteps - 1);
+		int h1 = h0 + 1 == hueSteps ? 0 : h0 + 1;
+		int row0 = l0 * hueSteps;
+		int row1 = row0 + hueSteps;
+		double lo = Math.min(Math.min(chroma[row0 + h0], chroma[row0 + h1]), Math.min(chroma[row1 + h0], chroma[row1 + h1]));
+		double hi = Math.max(Math.max(chroma[row0 + h0], chroma[row0 + h1]), Math.max(chroma[row1 + h0], chroma[row1 + h1]));
+		double cell = Math.max(hi - lo, hueStep*hi);
+		double c = Math.sqrt(a*a + b*b);
+		if(lo >= 0 && c <= lo - cell) {
+			return true;
+		}
+		// Where the gray cannot be shown at one of the grid points (the darkest L* values 
+		// of a display whose black is not neutral) the grid says nothing about the colors 
+		// that can, so those are checked exactly too 
+		if(lo >= 0 && c > hi + cell) {
+			return false;
+		}
+		return shown(converter, range, l, a, b, new double[3]);
+	}
+	
+	/**
+	* Checks whether the display can show a color without clamping it
+	* 
+	* @param lab The L*, a* and b* values of the color
+	* @return true if the color is inside the boundary
+	*/
+	public boolean isInGamut(double[] lab) {
+		return isInGamut(lab[0], lab[1], lab[2]);
+	}
+	
+	/**
+	* Finds how far a set of colors can all move in one hue direction in the a*b* plane
+	* (as the test colors of a plate do, see PlateStimulus) before any of them leaves the
+	* boundary, so a staircase's values can be capped before it starts
+	* 
+	* @param lab The L*, a* and b* values of the colors, three per color
+	* @param hueAngle The direction the colors move in, in radians
+	* @return The largest distance every color can move, or 0 if one is already outside
+	*/
+	public double maxStep(double[] lab, double hueAngle) {
+		double cos = Math.cos(hueAngle);
+		double sin = Math.sin(hueAngle);
+		double limit = 2*MAX_CHROMA;
+		for(int i = 0; i + 2 < lab.length; i += 3) {
+			if(!isInGamut(lab[i], lab[i + 1], lab[i + 2])) {
+				return 0;
+			}
+			// A line that does not pass through gray can leave the gamut and come back in, 
+			// so step outward to the first point outside and only bisect within that step 
+			double in = 0;
+			double out = -1;
+			while(in < limit) {
+				double next = Math.min(in + MARCH_STEP, limit);
+				if(!isInGamut(lab[i], lab[i + 1] + next*cos, lab[i + 2] + next*sin)) {
+					out = next;
+					break;
+				}
+				in = next;
+			}
+			if(out < 0) {
+				continue;
+			}
+			for(int k = 0; k < BISECTIONS; k++) {
+				double mid = 0.5*(in + out);
+				if(isInGamut(lab[i], lab[i + 1] + mid*cos, lab[i + 2] + mid*sin)) {
+					in = mid;
+				} else {
+					out = mid;
+				}
+			}
+			limit = in;
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,294 @@
+/**
+* Reads a matrix/TRC ICC display profile, like the ones dispcal wrote into
+* DisplayMeasurement: the XYZ of each primary (rXYZ, gXYZ, bXYZ), the tone response
+* curve of each channel (rTRC, gTRC, bTRC), the white point and luminance, and the
+* video card calibration curves (vcgt) if it has them.
+* 
+* The primaries in a profile are adapted to the D50 white of the ICC connection space.
+* They are adapted back to the display's own white (with the profile's chad matrix, or
+* its arts cone matrix and the white point) and scaled by the luminance, so the matrix
+* gives the absolute XYZ of each color, the same as the matrices files RGBLabConverter
+* reads.
+* 
+* A profile describes the display with its calibration loaded, so converter uses the
+* tone response curves as they are; the calibration curves are for pairing with a model
+* that was measured without calibration (see CalibrationCurves.applyTo).
+* 
+* @version 2026-10-18
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ICCProfile {
+	
+	// The white of the ICC profile connection space
+	private static final double[] D50 = {0.9642, 1.0, 0.8249};
+	// The Bradford cone response matrix, row by row, for profiles without an arts tag
+	private static final double[] BRADFORD = {
+		0.8951, 0.2664, -0.1614,
+		-0.7502, 1.7135, 0.0367,
+		0.0389, -0.0685, 1.0296
+	};
+	
+	/** The absolute XYZ of each primary at full strength: X, Y and Z of red, then of green, then of blue */
+	public final double[] rgbToXYZ;
+	/** The inverse of rgbToXYZ */
+	public final double[] xyzToRGB;
+	/** The absolute XYZ of the white, red, green and blue at full strength together */
+	public final double[] whitePoint;
+	
+	private final LUTTransfer transfer;
+	private final CalibrationCurves calibration;
+	
+	private ICCProfile(ByteBuffer data) throws IOException {
+		if(data.capacity() < 132 || data.getInt(36) != tag("acsp")) {
+			throw new IOException("Not an ICC profile");
+		}
+		if(data.getInt(12) != tag("mntr") || data.getInt(16) != tag("RGB ")) {
+			throw new IOException("Not an RGB display profile");
+		}
+		double[][] primaries = {
+			xyz(data, find(data, "rXYZ", true)),
+			xyz(data, find(data, "gXYZ", true)),
+			xyz(data, find(data, "bXYZ", true))
+		};
+		int lumi = find(data, "lumi", false);
+		double luminance = lumi < 0 ? 100 : xyz(data, lumi)[1];
+		
+		// From the connection space back to the display's white
+		double[] fromD50;
+		int chad = find(data, "chad", false);
+		if(chad >= 0) {
+			fromD50 = DisplayCharacterization.invert(sf32(data, chad, 9));
+		} else {
+			int arts = find(data, "arts", false);
+			double[] cone = arts < 0 ? BRADFORD : sf32(data, arts, 9);
+			double[] white = xyz(data, find(data, "wtpt", true));
+			double[] coneWhite = multiply(cone, white);
+			double[] coneD50 = multiply(cone, D50);
+			double[] scaled = cone.clone();
+			for(int row = 0; row < 3; row++) {
+				for(int col = 0; col < 3; col++) {
+					scaled[3*row + col] *= coneWhite[row] / coneD50[row];
+				}
+			}
+			double[] inverse = DisplayCharacterization.invert(cone);
+			fromD50 = new double[9];
+			for(int row = 0; row < 3; row++) {
+				for(int col = 0; col < 3; col++) {
+					for(int k = 0; k < 3; k++) {
+						fromD50[3*row + col] += inverse[3*row + k] * scaled[3*k + col];
+					}
+				}
+			}
+		}
+		
+		rgbToXYZ = new double[9];
+		whitePoint = new double[3];
+		for(int p = 0; p < 3; p++) {
+			double[] adapted = multiply(fromD50, primaries[p]);
+			for(int i = 0; i < 3; i++) {
+				rgbToXYZ[3*p + i] = luminance * adapted[i];
+				whitePoint[i] += rgbToXYZ[3*p + i];
+			}
+		}
+		xyzToRGB = DisplayCharacterization.invert(rgbToXYZ);
+		
+		double[][] trc = new double[3][];
+		for(int c = 0; c < 3; c++) {
+			trc[c] = curve(data, find(data, "rgb".charAt(c) + "TRC", true));
+		}
+		transfer = new LUTTransfer(trc[0], trc[1], trc[2]);
+		int vcgt = find(data, "vcgt", false);
+		calibration = vcgt < 0 ? null : videoLUT(data, vcgt);
+	}
+	
+	/**
+	* Loads an ICC profile
+	* 
+	* @param iccFile The name of the .icc file
+	* @return The profile
+	*/
+	public static ICCProfile load(String iccFile) throws IOException {
+		try {
+			return new ICCProfile(ByteBuffer.wrap(Files.readAllBytes(Paths.get(iccFile))));
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException(iccFile + " is cut short", e);
+		}
+	}
+	
+	/**
+	* @return The tone response curves of the calibrated display, as a LUT
+	*/
+	public LUTTransfer transfer() {
+		return transfer;
+	}
+	
+	/**
+	* @return The video card calibration curves, or null if the profile has none
+	*/
+	public CalibrationCurves calibration() {
+		return calibration;
+	}
+	
+	/**
+	* Makes a converter for the calibrated display this profile describes
+	* 
+	* @return The converter
+	*/
+	public RGBLabConverter converter() {
+		return new RGBLabConverter(rgbToXYZ, xyzToRGB, transfer, whitePoint);
+	}
+	
+	// The offset of a tag's data, or -1 (or an IOException if it is required) if the profile does not have it
+	private static int find(ByteBuffer data, String name, boolean required) throws IOException {
+		int signature = tag(name);
+		int count = data.getInt(128);
+		for(int i = 0; i < count; i++) {
+			int entry = 132 + 12*i;
+			if(data.getInt(entry) == signature) {
+				return data.getInt(entry + 4);
+			}
+		}
+		if(required) {
+			throw new IOException("The profile has no " + name + " tag");
+		}
+		return -1;
+	}
+	
+	private static int tag(String name) {
+		return name.charAt(0) << 24 | name.charAt(1) << 16 | name.charAt(2) << 8 | name.charAt(3);
+	}
+	
+	private static double s15Fixed16(ByteBuffer data, int offset) {
+		return data.getInt(offset) / 65536.0;
+	}
+	
+	private static double[] xyz(ByteBuffer data, int offset) throws IOException {
+		if(data.getInt(offset) != tag("XYZ ")) {
+			throw new IOException("Expected an XYZ tag");
+		}
+		return new double[] {s15Fixed16(data, offset + 8), s15Fixed16(data, offset + 12), s15Fixed16(data, offset + 16)};
+	}
+	
+	private static double[] sf32(ByteBuffer data, int offset, int count) throws IOException {
+		if(data.getInt(offset) != tag("sf32")) {
+			throw new IOException("Expected an sf32 tag");
+		}
+		double[] values = new double[count];
+		for(int i = 0; i < count; i++) {
+			values[i] = s15Fixed16(data, offset + 8 + 4*i);
+		}
+		return values;
+	}
+	
+	// A curv or para tone response curve, sampled at each of the 256 code values
+	private static double[] curve(ByteBuffer data, int offset) throws IOException {
+		double[] values = new double[256];
+		int type = data.getInt(offset);
+		if(type == tag("curv")) {
+			int count = data.getInt(offset + 8);
+			if(count == 0 || count == 1) {
+				double gamma = count == 0 ? 1 : (data.getShort(offset + 12) & 0xFFFF) / 256.0;
+				for(int code = 0; code < 256; code++) {
+					values[code] = Math.pow(code / 255.0, gamma);
+				}
+			} else {
+				double[] table = new double[count];
+				for(int i = 0; i < count; i++) {
+					table[i] = (data.getShort(offset + 12 + 2*i) & 0xFFFF) / 65535.0;
+				}
+				for(int code = 0; code < 256; code++) {
+					values[code] = interpolate(table, code / 255.0);
+				}
+			}
+		} else if(type == tag("para")) {
+			int function = data.getShort(offset + 8);
+			int[] counts = {1, 3, 4, 5, 7};
+			if(function < 0 || function >= counts.length) {
+				throw new IOException("Unknown parametric curve " + function);
+			}
+			// g, a, b, c, d, e, f, with the defaults that make the simpler functions
+			double[] p = {1, 1, 0, 0, 0, 0, 0};
+			for(int i = 0; i < counts[function]; i++) {
+				p[i] = s15Fixed16(data, offset + 12 + 4*i);
+			}
+			for(int code = 0; code < 256; code++) {
+				double x = code / 255.0;
+				double y;
+				switch(function) {
+					case 0: y = Math.pow(x, p[0]); break;
+					case 1: y = x >= -p[2]/p[1] ? Math.pow(p[1]*x + p[2], p[0]) : 0; break;
+					case 2: y = x >= -p[2]/p[1] ? Math.pow(p[1]*x + p[2], p[0]) + p[3] : p[3]; break;
+					case 3: y = x >= p[4] ? Math.pow(p[1]*x + p[2], p[0]) : p[3]*x; break;
+					default: y = x >= p[4] ? Math.pow(p[1]*x + p[2], p[0]) + p[5] : p[3]*x + p[6]; break;
+				}
+				values[code] = y;
+			}
+		} else {
+			throw new IOException("Unknown tone response curve type");
+		}
+		return values;
+	}
+	
+	// The vcgt tag that Apple and ArgyllCMS use, as a table or as a gamma, min and max for each channel
+	private static CalibrationCurves videoLUT(ByteBuffer data, int offset) throws IOException {
+		if(data.getInt(offset) != tag("vcgt")) {
+			throw new IOException("Expected a vcgt tag");
+		}
+		double[][] channels = new double[3][256];
+		int type = data.getInt(offset + 8);
+		if(type == 0) {
+			int count = data.getShort(offset + 12) & 0xFFFF;
+			int entries = data.getShort(offset + 14) & 0xFFFF;
+			int size = data.getShort(offset + 16) & 0xFFFF;
+			if((count != 1 && count != 3) || entries < 2 || (size != 1 && size != 2)) {
+				throw new IOException("Unsupported vcgt table");
+			}
+			int start = offset + 18;
+			for(int c = 0; c < 3; c++) {
+				double[] table = new double[entries];
+				int first = start + (count == 1 ? 0 : c*entries*size);
+				for(int i = 0; i < entries; i++) {
+					table[i] = size == 1 ? (data.get(first + i) & 0xFF) / 255.0 : (data.getShort(first + 2*i) & 0xFFFF) / 65535.0;
+				}
+				for(int code = 0; code < 256; code++) {
+					channels[c][code] = interpolate(table, code / 255.0);
+				}
+			}
+		} else if(type == 1) {
+			for(int c = 0; c < 3; c++) {
+				int at = offset + 12 + 12*c;
+				double gamma = s15Fixed16(data, at);
+				double min = s15Fixed16(data, at + 4);
+				double max = s15Fixed16(data, at + 8);
+				for(int code = 0; code < 256; code++) {
+					channels[c][code] = min + (max - min)*Math.pow(code / 255.0, gamma);
+				}
+			}
+		} else {
+			throw new IOException("Unknown vcgt type " + type);
+		}
+		return new CalibrationCurves(channels[0], channels[1], channels[2]);
+	}
+	
+	// Interpolates a table of evenly spaced samples over [0,1]
+	private static double interpolate(double[] table, double x) {
+		double position = x * (table.length - 1);
+		int below = Math.min((int)position, table.length - 2);
+		double t = position - below;
+		return table[below] + t*(table[below + 1] - table[below]);
+	}
+	
+	// A 3x3 matrix stored row by row times a vector
+	private static double[] multiply(double[] m, double[] v) {
+		return new double[] {
+			m[0]*v[0] + m[1]*v[1] + m[2]*v[2],
+			m[3]*v[0] + m[4]*v[1] + m[5]*v[2],
+			m[6]*v[0] + m[7]*v[1] + m[8]*v[2]
+		};
+	}
+}
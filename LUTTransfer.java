@@ -0,0 +1,176 @@
+/**
+* A transfer function that uses the measured uncompressed value of every code of every
+* channel (a gamma table like dell_s2240m_gamma.csv, or one written by 
+* DisplayCharacterization) instead of a fitted gamma curve, so it follows the display 
+* exactly, including its dark end. 
+* 
+* Near black the measurements go up and down with noise, so they cannot be inverted as
+* they are. Compressing uses the closest non-decreasing curve to them (by the pool 
+* adjacent violators algorithm), and finds the code for a linear value by starting at a 
+* code from a dense table and stepping forward, then interpolating between the two codes 
+* around it. Neither direction calls Math.pow. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+public class LUTTransfer implements TransferFunction {
+	
+	// The number of slots in the table of where to start looking for a code 
+	private static final int SLOTS = 4096;
+	
+	// The measured values, measured[256*channel + code] 
+	private final double[] measured;
+	// The closest non-decreasing values, in the same order 
+	private final double[] monotone;
+	// For each slot of linear values, the last code whose monotone value is at or below 
+	// the start of the slot, slotCodes[SLOTS*channel + slot] 
+	private final int[] slotCodes;
+	private final double[] low;
+	private final double[] slotScale;
+	
+	/**
+	* Constructor for a LUTTransfer 
+	* 
+	* @param red The uncompressed value of each of the 256 red codes 
+	* @param green The uncompressed value of each of the 256 green codes 
+	* @param blue The uncompressed value of each of the 256 blue codes 
+	*/
+	public LUTTransfer(double[] red, double[] green, double[] blue) {
+		double[][] channels = {red, green, blue};
+		measured = new double[3*256];
+		monotone = new double[3*256];
+		slotCodes = new int[3*SLOTS];
+		low = new double[3];
+		slotScale = new double[3];
+		for(int c = 0; c < 3; c++) {
+			if(channels[c].length != 256) {
+				throw new IllegalArgumentException("Need 256 values for each channel");
+			}
+			System.arraycopy(channels[c], 0, measured, 256*c, 256);
+			makeMonotone(channels[c], monotone, 256*c);
+			
+			low[c] = monotone[256*c];
+			double high = monotone[256*c + 255];
+			slotScale[c] = high > low[c] ? SLOTS / (high - low[c]) : 0;
+			int code = 0;
+			for(int slot = 0; slot < SLOTS; slot++) {
+				double start = low[c] + slot / slotScale[c];
+				while(code < 255 && monotone[256*c + code + 1] <= start) {
+					code++;
+				}
+				slotCodes[SLOTS*c + slot] = code;
+			}
+		}
+	}
+	
+	/**
+	* Loads a gamma table CSV file: a header line, then one line per code with the code, 
+	* the code as a fraction of 255, and the uncompressed red, green and blue values 
+	* 
+	* @param gammaFile The name of the CSV file 
+	* @return The transfer function 
+	*/
+	public static LUTTransfer load(String gammaFile) throws IOException {
+		double[][] values = new double[3][256];
+		boolean[] seen = new boolean[256];
+		try (BufferedReader in = new BufferedReader(new FileReader(gammaFile))) {
+			String line = in.readLine();
+			while((line = in.readLine()) != null) {
+				String[] parts = line.split(",");
+				if(parts.length < 5 || parts[0].trim().isEmpty()) {
+					continue;
+				}
+				int code = Integer.parseInt(parts[0].trim());
+				if(code < 0 || code > 255) {
+					throw new IOException(gammaFile + " has code " + code);
+				}
+				for(int c = 0; c < 3; c++) {
+					values[c][code] = Double.parseDouble(parts[2 + c].trim());
+				}
+				seen[code] = true;
+			}
+		}
+		for(int code = 0; code < 256; code++) {
+			if(!seen[code]) {
+				throw new IOException(gammaFile + " has no value for code " + code);
+			}
+		}
+		return new LUTTransfer(values[0], values[1], values[2]);
+	}
+	
+	public double uncompress(int code, int channel) {
+		return measured[256*channel + code];
+	}
+	
+	public double compress(double linear, int channel) {
+		int base = 256*channel;
+		if(linear <= low[channel]) {
+			return 0;
+		}
+		int slot = (int)((linear - low[channel]) * slotScale[channel]);
+		if(slot >= SLOTS) {
+			return 255;
+		}
+		int code = slotCodes[SLOTS*channel + slot];
+		while(code < 255 && monotone[base + code + 1] <= linear) {
+			code++;
+		}
+		if(code == 255) {
+			return 255;
+		}
+		double from = monotone[base + code];
+		return code + (linear - from) / (monotone[base + code + 1] - from);
+	}
+	
+	public double codeStart(int code, int channel) {
+		return monotone[256*channel + code];
+	}
+	
+	public double[] parameters() {
+		return measured.clone();
+	}
+	
+	/**
+	* Gets the largest difference between the measured values and the curve used for
+	* compressing, which shows how noisy the dark end of the measurements is 
+	* 
+	* @return The largest difference, in linear units 
+	*/
+	public double monotoneError() {
+		double max = 0;
+		for(int i = 0; i < measured.length; i++) {
+			max = Math.max(max, Math.abs(measured[i] - monotone[i]));
+		}
+		return max;
+	}
+	
+	// The closest non-decreasing sequence (least squares), by pool adjacent violators: 
+	// runs of values that go down are replaced by their mean 
+	private static void makeMonotone(double[] values, double[] out, int offset) {
+		int n = values.length;
+		double[] sums = new double[n];
+		int[] counts = new int[n];
+		int blocks = 0;
+		for(int i = 0; i < n; i++) {
+			sums[blocks] = values[i];
+			counts[blocks] = 1;
+			blocks++;
+			while(blocks > 1 && sums[blocks - 2] / counts[blocks - 2] > sums[blocks - 1] / counts[blocks - 1]) {
+				sums[blocks - 2] += sums[blocks - 1];
+				counts[blocks - 2] += counts[blocks - 1];
+				blocks--;
+			}
+		}
+		int i = offset;
+		for(int b = 0; b < blocks; b++) {
+			double mean = sums[b] / counts[b];
+			for(int k = 0; k < counts[b]; k++) {
+				out[i++] = mean;
+			}
+		}
+	}
+}
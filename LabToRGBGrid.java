@@ -0,0 +1,272 @@
+/**
+* Converts CIEL*a*b* colors to device RGB by interpolating from a precomputed grid
+* over the L*a*b* volume instead of running the full conversion (with a call to 
+* Math.pow for each channel) every time. The grid holds the linear RGB value of each
+* grid point, and values between grid points are found by tetrahedral interpolation:
+* the cell is split into six tetrahedra along its diagonal, and the four corners of
+* the tetrahedron containing the color are blended. Linear RGB is a smooth function of 
+* L*a*b*, so it interpolates far better than the gamma-compressed values would. Each
+* interpolated channel is then turned into a code value by a binary search through the
+* linear values at which each of the 256 codes begins, so no powers are needed. 
+* 
+* Grids are built lazily, once per display profile and resolution, and are never
+* changed after they are built, so one grid can be shared by any number of threads. 
+* Colors outside of the grid's volume are converted directly. 
+* 
+* The cache holds each grid until it is released: a caller that makes a converter for
+* a profile it uses only for a while (a calibration run or a test) owns that profile's
+* grids and should call release(converter) when done with it. Profiles that are used
+* for the whole session, like the ones DisplayProfiles hands out, can stay cached. 
+* 
+* @version 2026-10-18
+*/
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+public class LabToRGBGrid {
+	
+	public static final double MIN_L = 0;
+	public static final double MAX_L = 100;
+	public static final double MIN_AB = -128;
+	public static final double MAX_AB = 128;
+	
+	// One grid per display profile and resolution 
+	private static final ConcurrentHashMap<String, LabToRGBGrid> grids = new ConcurrentHashMap<String, LabToRGBGrid>();
+	
+	private final RGBLabConverter converter;
+	private final int resolution;
+	private final double lStep;
+	private final double abStep;
+	// Linear red, green, and blue for each grid point, with b* varying fastest, then a*, then L* 
+	private final float[] rgb;
+	// For each channel, the linear value at which each code from 1 to 255 begins 
+	private final double[] codeStarts;
+	private final int maxError;
+	
+	/**
+	* Gets the grid for a converter's display profile, building it if this is the
+	* first time this profile and resolution have been asked for 
+	* 
+	* @param converter The converter for the display profile 
+	* @param resolution The number of grid points along each axis, at least 2 
+	* @return The shared grid 
+	*/
+	public static LabToRGBGrid forConverter(final RGBLabConverter converter, final int resolution) {
+		if(resolution < 2) {
+			throw new IllegalArgumentException("The grid needs at least 2 points along each axis");
+		}
+		return grids.computeIfAbsent(converter.profileKey() + "/" + resolution, 
+			key -> new LabToRGBGrid(converter, resolution));
+	}
+	
+	/**
+	* Drops every grid built for a converter's display profile from the cache, at any 
+	* resolution. Grids already handed out keep working; they are only no longer shared 
+	* with callers that ask later, who get new ones. 
+	* 
+	* @param converter A converter for the display profile 
+	*/
+	public static void release(RGBLabConverter converter) {
+		String prefix = converter.profileKey() + "/";
+		grids.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+	
+	/**
+	* Drops every grid from the cache 
+	*/
+	public static void clear() {
+		grids.clear();
+	}
+	
+	/**
+	* Builds the grid in parallel and measures its error 
+	* 
+	* @param converter The converter to compute the grid points with
+	* @param resolution The number of grid points along each axis 
+	*/
+	private LabToRGBGrid(final RGBLabConverter converter, final int resolution) {
+		this.converter = converter;
+		this.resolution = resolution;
+		this.lStep = (MAX_L - MIN_L) / (resolution - 1);
+		this.abStep = (MAX_AB - MIN_AB) / (resolution - 1);
+		this.rgb = new float[3 * resolution * resolution * resolution];
+		this.codeStarts = new double[3 * 256];
+		for(int c = 0; c < 3; c++) {
+			codeStarts[256*c] = Double.NEGATIVE_INFINITY;
+			for(int code = 1; code < 256; code++) {
+				codeStarts[256*c + code] = converter.codeStart(code, c);
+			}
+		}
+		
+		// Each task fills one L* plane of the grid 
+		IntStream.range(0, resolution).parallel().forEach(i -> {
+			double[] point = new double[3];
+			for(int j = 0; j < resolution; j++) {
+				for(int k = 0; k < resolution; k++) {
+					converter.computeLabToLinearRGB(MIN_L + i*lStep, MIN_AB + j*abStep, MIN_AB + k*abStep, point, 0);
+					int index = 3 * ((i*resolution + j)*resolution + k);
+					rgb[index] = (float)point[0];
+					rgb[index+1] = (float)point[1];
+					rgb[index+2] = (float)point[2];
+				}
+			}
+		});
+		
+		// Interpolation error is largest far from the grid points, so compare
+		// against the direct conversion at the center of every cell 
+		this.maxError = IntStream.range(0, resolution - 1).parallel().map(i -> {
+			int max = 0;
+			for(int j = 0; j < resolution - 1; j++) {
+				for(int k = 0; k < resolution - 1; k++) {
+					double l = MIN_L + (i + 0.5)*lStep;
+					double a = MIN_AB + (j + 0.5)*abStep;
+					double b = MIN_AB + (k + 0.5)*abStep;
+					int exact = converter.computeLabToRGB(l, a, b);
+					int interpolated = LabToRGB(l, a, b);
+					for(int shift = 0; shift <= 16; shift += 8) {
+						max = Math.max(max, Math.abs((exact >> shift & 0xFF) - (interpolated >> shift & 0xFF)));
+					}
+				}
+			}
+			return max;
+		}).max().getAsInt();
+	}
+	
+	/**
+	* Converts one CIEL*a*b* color to RGB using the grid
+	* 
+	* @param l The L* value of the color to convert
+	* @param a The a* value of the color to convert
+	* @param b The b* value of the color to convert
+	* @return The device-specific, gamma-compressed RGB color equivalent to the given L*a*b* color 
+	*/
+	public int LabToRGB(double l, double a, double b) {
+		if(!contains(l, a, b)) {
+			return converter.computeLabToRGB(l, a, b);
+		}
+		double x = (l - MIN_L) / lStep;
+		double y = (a - MIN_AB) / abStep;
+		double z = (b - MIN_AB) / abStep;
+		int i = Math.min((int)x, resolution - 2);
+		int j = Math.min((int)y, resolution - 2);
+		int k = Math.min((int)z, resolution - 2);
+		int base = 3 * ((i*resolution + j)*resolution + k);
+		return (code(interpolateChannel(base, x - i, y - j, z - k, 0), 0) << 16)
+			| (code(interpolateChannel(base, x - i, y - j, z - k, 1), 1) << 8)
+			| code(interpolateChannel(base, x - i, y - j, z - k, 2), 2);
+	}
+	
+	/**
+	* Converts a batch of CIEL*a*b* colors to RGB using the grid. The L*a*b* values are 
+	* read three at a time, so lab[3*i], lab[3*i+1] and lab[3*i+2] become rgbOut[i]. 
+	* 
+	* @param lab The L*a*b* values to convert; its length must be a multiple of 3 
+	* @param rgbOut The array to write the gamma-compressed RGB colors to; must hold at least lab.length/3 colors
+	*/
+	public void convertLabToRGB(double[] lab, int[] rgbOut) {
+		if(lab.length % 3 != 0 || rgbOut.length < lab.length/3) {
+			throw new IllegalArgumentException("lab must hold 3 values for each color in rgbOut");
+		}
+		for(int i = 0; i < lab.length/3; i++) {
+			rgbOut[i] = LabToRGB(lab[3*i], lab[3*i+1], lab[3*i+2]);
+		}
+	}
+	
+	/**
+	* Gets the largest difference found between the grid and the direct conversion for
+	* any channel, measured at the center of every grid cell. The error is largest 
+	* where a channel is just above its lower limit, since compression is steepest there. 
+	* 
+	* @return The maximum interpolation error, in RGB code values (0 to 255) 
+	*/
+	public int maxError() {
+		return maxError;
+	}
+	
+	/**
+	* @return The number of grid points along each of the L*, a* and b* axes 
+	*/
+	public int resolution() {
+		return resolution;
+	}
+	
+	/**
+	* Checks whether a color falls inside the volume covered by the grid 
+	* 
+	* @param l The L* value of the color
+	* @param a The a* value of the color
+	* @param b The b* value of the color
+	* @return true if the color can be interpolated from the grid 
+	*/
+	public boolean contains(double l, double a, double b) {
+		return l >= MIN_L && l <= MAX_L && a >= MIN_AB && a <= MAX_AB && b >= MIN_AB && b <= MAX_AB;
+	}
+	
+	/**
+	* Finds the gamma-compressed code value for a linear channel value. This gives the 
+	* same result as compressing and truncating, since a linear value compresses to 
+	* code k or higher exactly when it is at least the uncompressed value of k. 
+	* 
+	* @param linear The linear value of the channel
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The code value in the range [0,255] 
+	*/
+	private int code(double linear, int channel) {
+		// Binary search for the last code that begins at or below the linear value 
+		int lo = 256*channel;
+		int hi = lo + 255;
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(codeStarts[mid] <= linear) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo - 256*channel;
+	}
+	
+	/**
+	* Tetrahedral interpolation of one channel within a grid cell. Sorting the fractional
+	* coordinates picks which of the six tetrahedra the point is in; every tetrahedron 
+	* shares the cell's first and last corners, and the other two corners are found by 
+	* stepping along the axes from largest to smallest fraction. 
+	* 
+	* @param base The index of the cell's first corner (the one with the smallest L*, a*, and b*)
+	* @param fx The fractional position along the L* axis, in [0,1] 
+	* @param fy The fractional position along the a* axis, in [0,1] 
+	* @param fz The fractional position along the b* axis, in [0,1] 
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The interpolated value of the channel 
+	*/
+	private double interpolateChannel(int base, double fx, double fy, double fz, int channel) {
+		final int dx = 3 * resolution * resolution;
+		final int dy = 3 * resolution;
+		final int dz = 3;
+		// First and second corners stepped to, and the sorted fractions t1 >= t2 >= t3 
+		int first, second;
+		double t1, t2, t3;
+		if(fx >= fy) {
+			if(fy >= fz) {
+				first = dx; second = dx + dy; t1 = fx; t2 = fy; t3 = fz;
+			} else if(fx >= fz) {
+				first = dx; second = dx + dz; t1 = fx; t2 = fz; t3 = fy;
+			} else {
+				first = dz; second = dx + dz; t1 = fz; t2 = fx; t3 = fy;
+			}
+		} else {
+			if(fz >= fy) {
+				first = dz; second = dy + dz; t1 = fz; t2 = fy; t3 = fx;
+			} else if(fz >= fx) {
+				first = dy; second = dy + dz; t1 = fy; t2 = fz; t3 = fx;
+			} else {
+				first = dy; second = dx + dy; t1 = fy; t2 = fx; t3 = fz;
+			}
+		}
+		int corner = base + channel;
+		return (1 - t1) * rgb[corner] 
+			+ (t1 - t2) * rgb[corner + first] 
+			+ (t2 - t3) * rgb[corner + second] 
+			+ t3 * rgb[corner + dx + dy + dz];
+	}
+}
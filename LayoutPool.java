@@ -0,0 +1,288 @@
+/**
+* A pool of pre-generated circle layouts stored in one binary file, so a session can 
+* start with hundreds of plates ready instead of making each one while the subject waits. 
+* The file is memory-mapped, and each layout is handed out as a view onto the mapped 
+* file, so reading layout k never reads or copies any of the other layouts. 
+* 
+* The file is little-endian and laid out as follows: 
+*   int magic ('CLPL'), int version, int number of layouts, int (unused)
+*   double minR, double maxR, double targetRatio, long seed (the settings the pool was made with)
+*   long[number of layouts + 1] the byte offset of each layout, followed by the file length
+* and then, for each layout, the int number of circles n followed by n float x coordinates,
+* n float y coordinates and n float radii. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class LayoutPool {
+	
+	// 'CLPL' 
+	private static final int MAGIC = 0x434C504C;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 48;
+	// Rounding the centers to floats moves circles by less than this, so radii are shrunk 
+	// by it before they are rounded down, and circles that just touched still do not overlap 
+	private static final double SHRINK = 0x1p-23;
+	
+	private final ByteBuffer buffer;
+	private final FloatBuffer floats;
+	private final int count;
+	
+	/**
+	* A single layout in the pool. It reads the circles straight from the mapped file. 
+	*/
+	public static class View implements CircleSet {
+		private final FloatBuffer floats;
+		private final int base;
+		private final int n;
+		
+		private View(FloatBuffer floats, int base, int n) {
+			this.floats = floats;
+			this.base = base;
+			this.n = n;
+		}
+		
+		public int size() {
+			return n;
+		}
+		
+		public double x(int i) {
+			return floats.get(base + i);
+		}
+		
+		public double y(int i) {
+			return floats.get(base + n + i);
+		}
+		
+		public double r(int i) {
+			return floats.get(base + 2*n + i);
+		}
+	}
+	
+	private LayoutPool(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.floats = buffer.asFloatBuffer();
+		this.count = buffer.getInt(8);
+	}
+	
+	/**
+	* Memory-maps a pool file. The table of offsets and the size of every layout are 
+	* checked against the length of the file, so a pool that was cut short or damaged 
+	* fails here rather than in get(). 
+	* 
+	* @param file The pool file
+	* @return The pool 
+	*/
+	public static LayoutPool open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map");
+			}
+			// The mapping stays valid after the channel is closed 
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException(file + " is not a layout pool");
+			}
+			checkOffsets(file, buffer);
+			return new LayoutPool(buffer);
+		}
+	}
+	
+	// Checks that every layout starts after the offset table, where the one before it 
+	// ends, and that the last one ends inside the file 
+	private static void checkOffsets(File file, ByteBuffer buffer) throws IOException {
+		long size = buffer.limit();
+		int count = buffer.getInt(8);
+		long tableEnd = HEADER_BYTES + 8L*(count + 1);
+		if(count < 0 || tableEnd > size) {
+			throw new IOException(file + " is cut short: its table of " + count + " layouts does not fit");
+		}
+		long expected = tableEnd;
+		for(int k = 0; k < count; k++) {
+			long offset = buffer.getLong(HEADER_BYTES + 8*k);
+			if(offset != expected || offset + 4 > size) {
+				throw new IOException(file + " is damaged: layout " + k + " is not where the one before it ends");
+			}
+			int n = buffer.getInt((int)offset);
+			expected = offset + 4 + 12L*n;
+			if(n < 0 || expected > size) {
+				throw new IOException(file + " is cut short: layout " + k + " of " + n + " circles does not fit");
+			}
+		}
+		if(buffer.getLong(HEADER_BYTES + 8*count) != expected) {
+			throw new IOException(file + " is damaged: the table does not end where the last layout does");
+		}
+	}
+	
+	/**
+	* @return The number of layouts in the pool 
+	*/
+	public int size() {
+		return count;
+	}
+	
+	/**
+	* Gets a view of one layout. Nothing is read from the file until the circles are. 
+	* 
+	* @param k The number of the layout, from 0 to size()-1
+	* @return The layout 
+	*/
+	public View get(int k) {
+		if(k < 0 || k >= count) {
+			throw new IndexOutOfBoundsException("No layout " + k + " in a pool of " + count);
+		}
+		int offset = (int)buffer.getLong(HEADER_BYTES + 8*k);
+		return new View(floats, (offset + 4) / 4, buffer.getInt(offset));
+	}
+	
+	/**
+	* @return The minimum radius the pool was made with 
+	*/
+	public double minR() {
+		return buffer.getDouble(16);
+	}
+	
+	/**
+	* @return The maximum radius the pool was made with 
+	*/
+	public double maxR() {
+		return buffer.getDouble(24);
+	}
+	
+	/**
+	* @return The target ratio the pool was made with 
+	*/
+	public double targetRatio() {
+		return buffer.getDouble(32);
+	}
+	
+	/**
+	* @return The seed the pool was made from 
+	*/
+	public long seed() {
+		return buffer.getLong(40);
+	}
+	
+	/**
+	* Writes layouts to a pool file. The layouts are copied into the file in parallel. The
+	* file is written under a temporary name and renamed once it is complete, so a reader 
+	* never sees a partial pool. The circles are stored as floats, as stored() rounds them,
+	* and each layout is checked with CircleLayout.isValid as it will be read back. 
+	* 
+	* @param file The pool file to write
+	* @param layouts The layouts to store
+	* @param minR The minimum radius the layouts were made with
+	* @param maxR The maximum radius the layouts were made with
+	* @param targetRatio The target ratio the layouts were made with
+	* @param seed The seed the layouts were made from 
+	*/
+	public static void write(File file, final List<CircleLayout> layouts, double minR, double maxR, double targetRatio, long seed) throws IOException {
+		final int count = layouts.size();
+		final long[] offsets = new long[count + 1];
+		offsets[0] = HEADER_BYTES + 8L*(count + 1);
+		for(int k = 0; k < count; k++) {
+			offsets[k + 1] = offsets[k] + 4 + 12L*layouts.get(k).n;
+		}
+		if(offsets[count] > Integer.MAX_VALUE) {
+			throw new IOException("Too many circles for one pool file");
+		}
+		
+		File dir = file.getAbsoluteFile().getParentFile();
+		// createTempFile needs a prefix of at least 3 characters 
+		String prefix = file.getName().length() < 3 ? file.getName() + "___" : file.getName();
+		File tmp = File.createTempFile(prefix, ".tmp", dir);
+		try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, offsets[count]);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, count);
+			buffer.putInt(12, 0);
+			buffer.putDouble(16, minR);
+			buffer.putDouble(24, maxR);
+			buffer.putDouble(32, targetRatio);
+			buffer.putLong(40, seed);
+			for(int k = 0; k <= count; k++) {
+				buffer.putLong(HEADER_BYTES + 8*k, offsets[k]);
+			}
+			
+			// Each layout goes into its own part of the file, so they can be written at once 
+			IntStream.range(0, count).parallel().forEach(k -> {
+				ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+				CircleLayout layout = layouts.get(k);
+				float[] values = storedValues(layout);
+				if(!validStored(values, layout.n)) {
+					throw new IllegalArgumentException("Layout " + k + " has overlapping circles once stored as floats");
+				}
+				int offset = (int)offsets[k];
+				view.putInt(offset, layout.n);
+				for(int i = 0; i < values.length; i++) {
+					view.putFloat(offset + 4 + 4*i, values[i]);
+				}
+			});
+			buffer.force();
+		} catch(IOException | RuntimeException e) {
+			tmp.delete();
+			throw e;
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	* Gets a layout exactly as it is read back from a pool file: the centers rounded to 
+	* floats, and the radii shrunk slightly and rounded down, so that circles that just 
+	* touched before rounding still do not overlap after it. 
+	* 
+	* @param layout The layout to store 
+	* @return The layout as stored 
+	*/
+	public static CircleLayout stored(CircleLayout layout) {
+		return toLayout(storedValues(layout), layout.n);
+	}
+	
+	// The n x, n y and n radius floats for a layout, in the order they are written 
+	private static float[] storedValues(CircleLayout layout) {
+		int n = layout.n;
+		float[] values = new float[3*n];
+		for(int i = 0; i < n; i++) {
+			values[i] = (float)layout.x[i];
+			values[n + i] = (float)layout.y[i];
+			double r = layout.r[i] - SHRINK;
+			float rounded = (float)r;
+			values[2*n + i] = rounded > r ? Math.nextDown(rounded) : rounded;
+		}
+		return values;
+	}
+	
+	private static boolean validStored(float[] values, int n) {
+		for(int i = 0; i < n; i++) {
+			if(!(values[2*n + i] > 0)) {
+				return false;
+			}
+		}
+		return toLayout(values, n).isValid();
+	}
+	
+	private static CircleLayout toLayout(float[] values, int n) {
+		ArrayList<Circle> circles = new ArrayList<Circle>(n);
+		for(int i = 0; i < n; i++) {
+			circles.add(new Circle(values[i], values[n + i], values[2*n + i]));
+		}
+		return CircleLayout.fromCircles(circles);
+	}
+}
@@ -0,0 +1,72 @@
+/**
+* Builds a LayoutPool file. The layouts are made in parallel, each from its own
+* SplittableRandom split from the seed, so the same arguments always give the same pool. 
+* Every layout is checked with CircleLayout.isValid before the pool is written, and
+* LayoutPool.write checks each one again as it is stored, rounded to floats. 
+* 
+* Usage: java LayoutPoolBuilder file count seed [poisson|darts] [minR maxR targetRatio]
+* The default is the PoissonDiskPacker with the same radii and ratio as CircleMaker. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class LayoutPoolBuilder {
+	public static void main(String[] args) throws Exception {
+		if(args.length != 3 && args.length != 4 && args.length != 7) {
+			System.out.println("Usage: java LayoutPoolBuilder file count seed [poisson|darts] [minR maxR targetRatio]");
+			System.exit(1);
+		}
+		File file = new File(args[0]);
+		int count = Integer.parseInt(args[1]);
+		long seed = Long.parseLong(args[2]);
+		boolean poisson = args.length < 4 || args[3].equalsIgnoreCase("poisson");
+		double minR = args.length == 7 ? Double.parseDouble(args[4]) : CircleMaker.MIN_R;
+		double maxR = args.length == 7 ? Double.parseDouble(args[5]) : CircleMaker.MAX_R;
+		double targetRatio = args.length == 7 ? Double.parseDouble(args[6]) : CircleMaker.TARGET_RATIO;
+		
+		long start = System.nanoTime();
+		List<CircleLayout> layouts = makeLayouts(count, seed, poisson, minR, maxR, targetRatio);
+		for(int k = 0; k < count; k++) {
+			if(!layouts.get(k).isValid()) {
+				throw new IllegalStateException("Layout " + k + " has overlapping circles");
+			}
+		}
+		LayoutPool.write(file, layouts, minR, maxR, targetRatio, seed);
+		System.out.println("Wrote " + count + " layouts to " + file + " in " + (System.nanoTime() - start)/1000000 + " ms");
+	}
+	
+	/**
+	* Makes layouts in parallel 
+	* 
+	* @param count The number of layouts to make
+	* @param seed The seed for the whole pool
+	* @param poisson true to use the PoissonDiskPacker, false to use CircleMaker
+	* @param minR The minimum radius a circle can have
+	* @param maxR The maximum radius a circle can have
+	* @param targetRatio The desired ratio of total circle area to total area to fill 
+	* @return The layouts, in order 
+	*/
+	public static List<CircleLayout> makeLayouts(int count, long seed, boolean poisson, double minR, double maxR, double targetRatio) {
+		if(!poisson) {
+			return new CircleMaker(minR, maxR, targetRatio).makeLayouts(count, seed);
+		}
+		// Split all the randoms up front so the layouts do not depend on the threads, 
+		// the same way CircleMaker.makeLayouts does 
+		SplittableRandom root = new SplittableRandom(seed);
+		final List<SplittableRandom> randoms = new ArrayList<SplittableRandom>(count);
+		for(int k = 0; k < count; k++) {
+			randoms.add(root.split());
+		}
+		final PoissonDiskPacker packer = new PoissonDiskPacker(minR, maxR, targetRatio);
+		return IntStream.range(0, count).parallel()
+			.mapToObj(k -> packer.pack(randoms.get(k)).layout)
+			.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,37 @@
+/**
+* The size and orientation of the test image, kept apart from DrawTestImage so the
+* classes that prepare and draw plates without Processing (PreparedPlate,
+* PlateRasterizer, PlateStimulus and StimulusPrefetcher) can be built without core.jar.
+* 
+* @version 2026-10-18
+*/
+
+public class PlateGeometry {
+	
+	/**
+	* The way the cut in the C faces
+	*/
+	public enum Direction {
+		UP, DOWN, LEFT, RIGHT
+	}
+	
+	static final double RADIANS_PER_DEGREE = 0.0174533;
+	
+	private PlateGeometry() {
+	}
+	
+	/**
+	* Finds the width (and height) of the image in pixels. The image is 2 degrees
+	* wide when viewed from the given distance.
+	* 
+	* @param distFromScreen The distance the observer is from the screen, in meters
+	* @param pixelsPerMeter The number of pixels in one meter for this screen
+	* @return The width of the image in pixels
+	*/
+	public static int imageWidth(double distFromScreen, double pixelsPerMeter) {
+		// To find the width of the image, we use a 2 degree field of view
+		// Width in meters: distance observer is from the screen * tan(1 degree)
+		int pixelsInOneDegree = (int)(distFromScreen*Math.tan(RADIANS_PER_DEGREE)*pixelsPerMeter);
+		return 2*pixelsInOneDegree;
+	}
+}
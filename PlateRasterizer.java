@@ -0,0 +1,231 @@
+/**
+* Draws the test image from DrawTestImage into an array of ARGB pixels without 
+* Processing, so stimuli can be made, checked and benchmarked on a machine with no
+* display. The image uses the same coordinates as DrawTestImage (the larger circle
+* fills the image, scaled by width/2 and moved so (0,0) is in the middle), a black 
+* background, and the same coloring of the circles through PreparedPlate.pickColors. 
+* 
+* Circles are filled one scanline at a time. Pixels that are entirely inside a circle
+* are simply set; pixels on the edge are blended with the background by how much of the
+* pixel the circle covers, which comes close to Processing's smoothed ellipses. The
+* image is split into bands of rows that are drawn in parallel: each band draws only
+* the circles that reach it and only writes its own rows. If the thread that called
+* render is interrupted, such as by a StimulusPrefetcher dropping a stimulus it no longer
+* needs, the bands not yet started are skipped and render throws a CancellationException. 
+* 
+* @version 2026-10-18
+*/
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+public class PlateRasterizer {
+	static final int BAND_HEIGHT = 32;
+	static final int BACKGROUND = 0xFF000000;
+	
+	private final int width;
+	
+	/**
+	* Constructor for a PlateRasterizer 
+	* 
+	* @param width The width (and height) of the images to draw, in pixels 
+	*/
+	public PlateRasterizer(int width) {
+		this.width = width;
+	}
+	
+	/**
+	* Constructor for a PlateRasterizer that draws images the same size as 
+	* DrawTestImage would for the given viewing distance and display 
+	* 
+	* @param distFromScreen The distance the observer is from the screen, in meters 
+	* @param pixelsPerMeter The number of pixels in one meter for this screen 
+	*/
+	public PlateRasterizer(double distFromScreen, double pixelsPerMeter) {
+		this(PlateGeometry.imageWidth(distFromScreen, pixelsPerMeter));
+	}
+	
+	/**
+	* @return The width (and height) of the images this draws, in pixels 
+	*/
+	public int width() {
+		return width;
+	}
+	
+	/**
+	* Draws the test image with colors picked the same way as DrawTestImage 
+	* 
+	* @param circles The circles that give the location and dimension of all circles in the image
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param dir The direction for the cut in the C 
+	* @param random The source of the random color choices 
+	* @return The image as width*width ARGB pixels, row by row 
+	*/
+	public int[] render(CircleSet circles, int[] center, int[] test, PlateGeometry.Direction dir, SplittableRandom random) {
+		return render(new PreparedPlate(circles, dir), center, test, random);
+	}
+	
+	/**
+	* Draws the test image for a plate that has already been sorted into regions 
+	* 
+	* @param plate The layout of circles, sorted into regions for the direction of the C
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param random The source of the random color choices 
+	* @return The image as width*width ARGB pixels, row by row 
+	*/
+	public int[] render(PreparedPlate plate, int[] center, int[] test, SplittableRandom random) {
+		int[] colors = new int[plate.circles.size()];
+		plate.pickColors(center, test, random, colors);
+		int[] pixels = new int[width*width];
+		render(plate.circles, colors, pixels);
+		return pixels;
+	}
+	
+	/**
+	* Draws circles that have already been colored 
+	* 
+	* @param circles The circles that give the location and dimension of all circles in the image
+	* @param colors The RGB color of each circle; the alpha bits are ignored 
+	* @param pixels The array to draw into, which must hold width*width pixels 
+	* @throws CancellationException If the calling thread is interrupted before the image is finished; it is left interrupted 
+	*/
+	public void render(final CircleSet circles, final int[] colors, final int[] pixels) {
+		if(pixels.length < width*width) {
+			throw new IllegalArgumentException("pixels must hold " + width*width + " pixels");
+		}
+		// Same transform as DrawTestImage: scale(width/2) and then translate(1, 1) 
+		final double scale = width/2;
+		final int numBands = (width + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		
+		// List the circles that reach each band, CSR style: the circles for band b 
+		// are bandCircles[bandStart[b]] up to bandCircles[bandStart[b+1]] 
+		final int n = circles.size();
+		int[] bandStart = new int[numBands + 1];
+		for(int i = 0; i < n; i++) {
+			int first = firstBand(circles, i, scale, numBands);
+			int last = lastBand(circles, i, scale, numBands);
+			for(int b = first; b <= last; b++) {
+				bandStart[b + 1]++;
+			}
+		}
+		for(int b = 0; b < numBands; b++) {
+			bandStart[b + 1] += bandStart[b];
+		}
+		final int[] bandCircles = new int[bandStart[numBands]];
+		int[] fill = new int[numBands];
+		for(int i = 0; i < n; i++) {
+			int first = firstBand(circles, i, scale, numBands);
+			int last = lastBand(circles, i, scale, numBands);
+			for(int b = first; b <= last; b++) {
+				bandCircles[bandStart[b] + fill[b]++] = i;
+			}
+		}
+		final int[] starts = bandStart;
+		
+		// The bands run on the common pool, so they look at the caller's interrupt 
+		// rather than their own 
+		final Thread caller = Thread.currentThread();
+		IntStream.range(0, numBands).parallel().forEach(b -> {
+			if(caller.isInterrupted()) {
+				throw new CancellationException("Interrupted while rendering");
+			}
+			int rowStart = b * BAND_HEIGHT;
+			int rowEnd = Math.min(rowStart + BAND_HEIGHT, width);
+			for(int p = rowStart*width; p < rowEnd*width; p++) {
+				pixels[p] = BACKGROUND;
+			}
+			for(int k = starts[b]; k < starts[b + 1]; k++) {
+				int i = bandCircles[k];
+				fillCircle((circles.x(i) + 1)*scale, (circles.y(i) + 1)*scale, circles.r(i)*scale, 
+					colors[i], pixels, rowStart, rowEnd);
+			}
+		});
+	}
+	
+	/**
+	* Fills the part of one circle that falls between two rows. Pixel (px, py) covers
+	* the square from (px, py) to (px+1, py+1), so its center is at (px+0.5, py+0.5). 
+	* 
+	* @param cx The x coordinate of the center, in pixels
+	* @param cy The y coordinate of the center, in pixels
+	* @param r The radius, in pixels
+	* @param color The RGB color of the circle
+	* @param pixels The image to draw into
+	* @param rowStart The first row to draw
+	* @param rowEnd The row after the last row to draw 
+	*/
+	private void fillCircle(double cx, double cy, double r, int color, int[] pixels, int rowStart, int rowEnd) {
+		double outer = r + 0.5;
+		double inner = r - 0.5;
+		int top = Math.max(rowStart, (int)Math.floor(cy - outer));
+		int bottom = Math.min(rowEnd - 1, (int)Math.ceil(cy + outer));
+		for(int py = top; py <= bottom; py++) {
+			double dy = py + 0.5 - cy;
+			if(Math.abs(dy) >= outer) { continue; }
+			// Pixels whose centers are within inner of the center are entirely covered; 
+			// pixels out to outer are partly covered 
+			double outerHalf = Math.sqrt(outer*outer - dy*dy);
+			double innerHalf = Math.abs(dy) < inner ? Math.sqrt(inner*inner - dy*dy) : -1;
+			int left = Math.max(0, (int)Math.floor(cx - outerHalf - 0.5));
+			int right = Math.min(width - 1, (int)Math.ceil(cx + outerHalf - 0.5));
+			int row = py*width;
+			for(int px = left; px <= right; px++) {
+				double dx = px + 0.5 - cx;
+				if(Math.abs(dx) <= innerHalf) {
+					pixels[row + px] = 0xFF000000 | color;
+				} else {
+					double coverage = r + 0.5 - Math.sqrt(dx*dx + dy*dy);
+					if(coverage > 0) {
+						pixels[row + px] = blend(pixels[row + px], color, Math.min(coverage, 1));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	* Mixes a color over a pixel 
+	* 
+	* @param under The pixel already in the image
+	* @param color The color to put over it
+	* @param amount How much of the new color to use, from 0 to 1 
+	* @return The opaque ARGB result 
+	*/
+	private static int blend(int under, int color, double amount) {
+		int red = (int)Math.round((under >> 16 & 0xFF)*(1 - amount) + (color >> 16 & 0xFF)*amount);
+		int green = (int)Math.round((under >> 8 & 0xFF)*(1 - amount) + (color >> 8 & 0xFF)*amount);
+		int blue = (int)Math.round((under & 0xFF)*(1 - amount) + (color & 0xFF)*amount);
+		return 0xFF000000 | (red << 16) | (green << 8) | blue;
+	}
+	
+	private static int firstBand(CircleSet circles, int i, double scale, int numBands) {
+		int row = (int)Math.floor((circles.y(i) + 1 - circles.r(i))*scale - 0.5);
+		return Math.min(numBands - 1, Math.max(0, row / BAND_HEIGHT));
+	}
+	
+	private static int lastBand(CircleSet circles, int i, double scale, int numBands) {
+		int row = (int)Math.ceil((circles.y(i) + 1 + circles.r(i))*scale + 0.5);
+		return Math.min(numBands - 1, Math.max(0, row / BAND_HEIGHT));
+	}
+	
+	/**
+	* Saves an image drawn by a PlateRasterizer as a PNG file, for checking by eye or 
+	* comparing with a screenshot of the sketch 
+	* 
+	* @param pixels The ARGB pixels
+	* @param width The width (and height) of the image
+	* @param file The file to write 
+	*/
+	public static void savePNG(int[] pixels, int width, File file) throws IOException {
+		BufferedImage image = new BufferedImage(width, width, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, width, width, pixels, 0, width);
+		ImageIO.write(image, "png", file);
+	}
+}
@@ -0,0 +1,152 @@
+/**
+* One stimulus of the experiment: the center and test palettes for a given 
+* intensity and the plate drawn with them. The test colors are the center colors
+* moved by the intensity (a distance in the a*b* plane) in a fixed hue direction, so
+* a lower intensity gives a C that is harder to see. 
+* 
+* A Factory makes stimuli for one plate and color direction, and can be handed to a 
+* StimulusPrefetcher so the next stimuli are ready before the response comes in. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.SplittableRandom;
+import java.util.function.DoubleFunction;
+
+public class PlateStimulus {
+	
+	private final double intensity;
+	private final int[] center;
+	private final int[] test;
+	private final int[] pixels;
+	
+	/**
+	* Constructor for a PlateStimulus. The arrays are kept, not copied, so they must not 
+	* be changed afterwards. 
+	* 
+	* @param intensity The staircase value this stimulus was made for 
+	* @param center The colors of the rings and the cut, as ARGB 
+	* @param test The colors of the C, as ARGB 
+	* @param pixels The drawn plate as ARGB pixels, row by row 
+	*/
+	PlateStimulus(double intensity, int[] center, int[] test, int[] pixels) {
+		this.intensity = intensity;
+		this.center = center;
+		this.test = test;
+		this.pixels = pixels;
+	}
+	
+	/**
+	* @return The staircase value this stimulus was made for 
+	*/
+	public double getIntensity() {
+		return intensity;
+	}
+	
+	/**
+	* @return A copy of the colors of the rings and the cut, as ARGB 
+	*/
+	public int[] getCenter() {
+		return center.clone();
+	}
+	
+	/**
+	* @return A copy of the colors of the C, as ARGB 
+	*/
+	public int[] getTest() {
+		return test.clone();
+	}
+	
+	/**
+	* @return The number of pixels in the drawn plate 
+	*/
+	public int pixelCount() {
+		return pixels.length;
+	}
+	
+	/**
+	* Copies the drawn plate into an array, such as the pixels of a PImage, without 
+	* allocating anything 
+	* 
+	* @param out The array to copy the ARGB pixels to, row by row; must hold at least pixelCount() values 
+	*/
+	public void copyPixels(int[] out) {
+		System.arraycopy(pixels, 0, out, 0, pixels.length);
+	}
+	
+	/**
+	* Makes the stimuli for one plate. Everything that does not depend on the 
+	* intensity (the converter, the sorted plate, the rasterizer and the center
+	* palette) is set up once, and every stimulus uses its own random numbers, seeded 
+	* by mixing the intensity into the seed, so the same intensities always give the 
+	* same images and nearby intensities do not get related random numbers. 
+	*/
+	public static class Factory implements DoubleFunction<PlateStimulus> {
+		private final RGBLabConverter converter;
+		private final PreparedPlate plate;
+		private final PlateRasterizer rasterizer;
+		private final double[] centerLab;
+		private final int[] centerRGB;
+		private final double cosHue;
+		private final double sinHue;
+		private final long seed;
+		
+		/**
+		* Constructor for a Factory 
+		* 
+		* @param converter The converter for the display the stimuli are shown on 
+		* @param plate The layout of circles, sorted into regions for the direction of the C
+		* @param rasterizer The rasterizer that draws the plate 
+		* @param centerLab The center colors as L*a*b* triples, one after another 
+		* @param hueAngle The direction the test colors move in the a*b* plane, in radians 
+		* @param seed The seed for the color choices 
+		*/
+		public Factory(RGBLabConverter converter, PreparedPlate plate, PlateRasterizer rasterizer, double[] centerLab, double hueAngle, long seed) {
+			this.converter = converter;
+			this.plate = plate;
+			this.rasterizer = rasterizer;
+			this.centerLab = centerLab.clone();
+			this.centerRGB = new int[centerLab.length/3];
+			converter.convertLabToRGB(this.centerLab, centerRGB);
+			opaque(centerRGB);
+			this.cosHue = Math.cos(hueAngle);
+			this.sinHue = Math.sin(hueAngle);
+			this.seed = seed;
+		}
+		
+		/**
+		* Makes the palettes and draws the plate for one intensity 
+		* 
+		* @param intensity The distance of the test colors from the center colors in the a*b* plane 
+		* @return The stimulus 
+		*/
+		public PlateStimulus apply(double intensity) {
+			double[] testLab = new double[centerLab.length];
+			for(int i = 0; i < centerLab.length; i += 3) {
+				testLab[i] = centerLab[i];
+				testLab[i + 1] = centerLab[i + 1] + intensity*cosHue;
+				testLab[i + 2] = centerLab[i + 2] + intensity*sinHue;
+			}
+			int[] testRGB = new int[centerRGB.length];
+			converter.convertLabToRGB(testLab, testRGB);
+			opaque(testRGB);
+			SplittableRandom random = new SplittableRandom(mix(seed + mix(Double.doubleToLongBits(intensity))));
+			int[] pixels = rasterizer.render(plate, centerRGB, testRGB, random);
+			return new PlateStimulus(intensity, centerRGB, testRGB, pixels);
+		}
+		
+		// The 64-bit finalizer from SplittableRandom (Stafford's variant 13), so that every 
+		// bit of the intensity changes about half of the bits of the stream's seed 
+		private static long mix(long z) {
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
+		}
+		
+		private static void opaque(int[] rgb) {
+			for(int i = 0; i < rgb.length; i++) {
+				rgb[i] |= 0xFF000000;
+			}
+		}
+	}
+}
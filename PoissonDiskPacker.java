@@ -0,0 +1,198 @@
+/**
+* Fills a larger circle with smaller, non-overlapping circles, like CircleMaker, but 
+* without blind dart throwing. CircleMaker picks points anywhere in the square around
+* the larger circle, so as the fill ratio approaches the target almost every point
+* lands on an existing circle or outside the larger circle and is thrown away. 
+* 
+* This packer uses an active list in the style of Bridson's Poisson-disk sampling, 
+* adapted to variable radii and to a circular region. Every circle starts out active.
+* To grow the layout, an active circle is picked at random and a new circle is tried 
+* right next to it, just outside its edge in a random direction; the new circle is shrunk 
+* against its neighbors and against the edge of the larger circle. After ATTEMPTS_PER_CIRCLE
+* failed tries around one circle, the space around it is considered full and it is retired.
+* Candidates are only ever placed in the gaps next to existing circles, inside the larger 
+* circle, so few are wasted. If every circle is retired before the target ratio is reached,
+* a new seed circle is dropped at a random point in the larger circle; once MAX_SEED_FAILURES
+* seeds in a row find no room, the larger circle is as full as it will get. The total number
+* of tries is also capped, so a layout always finishes in bounded time. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class PoissonDiskPacker {
+	static final int ATTEMPTS_PER_CIRCLE = 12;
+	static final int MAX_SEED_FAILURES = 10000;
+	static final long MAX_ATTEMPTS = 5000000;
+	static final double FILL_AREA = Math.PI;
+	
+	private final double minR;
+	private final double maxR;
+	private final double targetRatio;
+	private final long maxAttempts;
+	
+	/**
+	* The layout made by the packer along with how much work it took
+	*/
+	public static class Result {
+		public final CircleLayout layout;
+		public final long attempts;
+		public final long accepted;
+		public final double achievedRatio;
+		
+		/**
+		* Constructor for a Result
+		* 
+		* @param layout The layout of circles
+		* @param attempts The number of candidate circles that were tried
+		* @param accepted The number of candidate circles that were kept
+		* @param achievedRatio The ratio of total circle area to total area to fill 
+		*/
+		public Result(CircleLayout layout, long attempts, long accepted, double achievedRatio) {
+			this.layout = layout;
+			this.attempts = attempts;
+			this.accepted = accepted;
+			this.achievedRatio = achievedRatio;
+		}
+		
+		/**
+		* @return The fraction of candidate circles that were kept 
+		*/
+		public double acceptanceRate() {
+			return attempts == 0 ? 0 : (double)accepted / attempts;
+		}
+		
+		public String toString() {
+			return layout.n + " circles, ratio " + achievedRatio + ", " + accepted + " accepted out of " 
+				+ attempts + " attempts (" + acceptanceRate() + ")";
+		}
+	}
+	
+	/**
+	* Constructor for a PoissonDiskPacker with the same defaults as CircleMaker 
+	*/
+	public PoissonDiskPacker() {
+		this(CircleMaker.MIN_R, CircleMaker.MAX_R, CircleMaker.TARGET_RATIO);
+	}
+	
+	/**
+	* Constructor for a PoissonDiskPacker 
+	* 
+	* @param minR The minimum radius a circle can have
+	* @param maxR The maximum radius a circle can have
+	* @param targetRatio The desired ratio of total circle area to total area to fill 
+	*/
+	public PoissonDiskPacker(double minR, double maxR, double targetRatio) {
+		this(minR, maxR, targetRatio, MAX_ATTEMPTS);
+	}
+	
+	/**
+	* Constructor for a PoissonDiskPacker 
+	* 
+	* @param minR The minimum radius a circle can have
+	* @param maxR The maximum radius a circle can have
+	* @param targetRatio The desired ratio of total circle area to total area to fill 
+	* @param maxAttempts The most candidate circles to try for one layout 
+	*/
+	public PoissonDiskPacker(double minR, double maxR, double targetRatio, long maxAttempts) {
+		if(minR <= 0 || maxR < minR || maxR > 1) {
+			throw new IllegalArgumentException("Radii must satisfy 0 < minR <= maxR <= 1");
+		}
+		this.minR = minR;
+		this.maxR = maxR;
+		this.targetRatio = targetRatio;
+		this.maxAttempts = maxAttempts;
+	}
+	
+	/**
+	* Create one layout from a seed. The same seed always gives the same layout. 
+	* 
+	* @param seed The seed for the random positions and radii 
+	* @return The layout and the statistics for making it 
+	*/
+	public Result pack(long seed) {
+		return pack(new SplittableRandom(seed));
+	}
+	
+	/**
+	* Create a layout of circles that fill a larger circle. No two circles overlap,
+	* and circles are added until the total area of the circles divided by the 
+	* total area to fill reaches the target ratio or the attempts run out. 
+	* 
+	* @param random The source of the random positions and radii; it is used by this call only
+	* @return The layout and the statistics for making it 
+	*/
+	public Result pack(SplittableRandom random) {
+		CircleGrid grid = new CircleGrid(maxR);
+		// The active circles are kept at the front of this list; a retired circle 
+		// is swapped with the last active one. slot holds each circle's place in the list. 
+		int[] active = new int[256];
+		int numActive = 0;
+		int[] slot = new int[256];
+		int[] failures = new int[256];
+		
+		double area = 0.0;
+		long attempts = 0;
+		int seedFailures = 0;
+		
+		// Stop at the target ratio, when the attempts run out, or when the larger circle
+		// is so full that seeds keep failing to find room 
+		while(area/FILL_AREA < targetRatio && attempts < maxAttempts && seedFailures < MAX_SEED_FAILURES) {
+			attempts++;
+			double x, y;
+			double radius = minR + (maxR - minR)*random.nextDouble();
+			int parent = -1;
+			
+			if(numActive == 0) {
+				// Nothing left to grow from, so drop a seed uniformly inside the larger circle 
+				double angle = 2*Math.PI*random.nextDouble();
+				double dist = Math.sqrt(random.nextDouble()) * (1 - minR);
+				x = dist * Math.cos(angle);
+				y = dist * Math.sin(angle);
+			} else {
+				// Put the candidate just outside a random active circle, leaving 
+				// a small random gap so the circles do not all line up 
+				parent = active[random.nextInt(numActive)];
+				double angle = 2*Math.PI*random.nextDouble();
+				double dist = grid.r(parent) + radius + 0.1*minR*random.nextDouble();
+				x = grid.x(parent) + dist * Math.cos(angle);
+				y = grid.y(parent) + dist * Math.sin(angle);
+			}
+			
+			// Shrink against the edge of the larger circle and then against the neighbors 
+			double fromOrigin = Math.sqrt(x*x + y*y);
+			radius = Math.min(radius, 1.0 - fromOrigin);
+			if(radius >= minR) {
+				radius = grid.fit(x, y, radius, minR);
+			}
+			
+			if(radius >= minR) {
+				int added = grid.size();
+				grid.add(x, y, radius);
+				area += Math.PI*radius*radius;
+				if(numActive == active.length) {
+					active = Arrays.copyOf(active, 2*numActive);
+				}
+				if(added == failures.length) {
+					failures = Arrays.copyOf(failures, 2*added);
+					slot = Arrays.copyOf(slot, 2*added);
+				}
+				slot[added] = numActive;
+				active[numActive++] = added;
+				seedFailures = 0;
+			} else if(parent < 0) {
+				seedFailures++;
+			} else if(++failures[parent] >= ATTEMPTS_PER_CIRCLE) {
+				// Retire the parent by moving the last active circle into its place 
+				int last = active[--numActive];
+				active[slot[parent]] = last;
+				slot[last] = slot[parent];
+			}
+		}
+		
+		CircleLayout layout = grid.toLayout();
+		return new Result(layout, attempts, layout.n, area/FILL_AREA);
+	}
+}
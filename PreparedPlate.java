@@ -0,0 +1,131 @@
+/**
+* A layout of circles that has been sorted into the regions of the test image for
+* one direction of the C. The layout and direction stay the same for a whole block
+* of trials while only the colors change, so the geometry is worked out once here and
+* every recoloring is a loop over lists of circle numbers, with no square roots, no
+* range checks and no Math.random(). 
+* 
+* The regions are the outer ring, the inner ring, the cut of the C (all drawn in the 
+* center colors) and the C itself (drawn in the test colors). The circle numbers for
+* all four are kept in one array, region by region. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.SplittableRandom;
+
+public class PreparedPlate {
+	
+	public static final int OUTER_RING = 0;
+	public static final int INNER_RING = 1;
+	public static final int CUT = 2;
+	public static final int TEST = 3;
+	
+	private static final double CUT_SIZE = 1/6.0;
+	
+	public final CircleSet circles;
+	public final PlateGeometry.Direction dir;
+	// The circles in region g are indices[regionStart[g]] up to indices[regionStart[g+1]] 
+	private final int[] indices;
+	private final int[] regionStart;
+	
+	/**
+	* Constructor for a PreparedPlate. Sorts every circle into its region. 
+	* 
+	* @param circles The layout of circles
+	* @param dir The direction for the cut in the C 
+	*/
+	public PreparedPlate(CircleSet circles, PlateGeometry.Direction dir) {
+		this.circles = circles;
+		this.dir = dir;
+		
+		// Use the direction the C opens to figure out the coordinate constraints
+		// for the cut, keeping in mind that the cut will be 1/6 of a degree
+		// Note: By translating the origin from the upper-left corner to the middle, 
+		// y increases down and decreases up from the origin, so that the negative
+		// y values are at the top half of the image and the positive y values are at the bottom 
+		double xMin, xMax, yMin, yMax; 
+		switch(dir) {
+			case UP: xMin = -CUT_SIZE; xMax = CUT_SIZE; yMin = -1; yMax = 0; 
+			break;
+			
+			case DOWN: xMin = -CUT_SIZE; xMax = CUT_SIZE; yMin = 0; yMax = 1;
+			break;
+			
+			case LEFT: xMin = -1; xMax = 0; yMin = -CUT_SIZE; yMax = CUT_SIZE;
+			break;
+			
+			case RIGHT: xMin = 0; xMax = 1; yMin = -CUT_SIZE; yMax = CUT_SIZE; 
+			break;
+			
+			default: xMin = 0; xMax = 0; yMin = 0; yMax = 0;
+		}
+		
+		// For each circle, calculate its distance from the center of the image
+		// to determine which region it is in. Count the regions first, then 
+		// list the circles in each one 
+		int n = circles.size();
+		byte[] region = new byte[n];
+		regionStart = new int[5];
+		for(int i = 0; i < n; i++) {
+			double x = circles.x(i);
+			double y = circles.y(i);
+			double d = Math.sqrt(x*x + y*y);
+			if(d > 2/3.0) {
+				region[i] = OUTER_RING;
+			} else if(d < 1/3.0) {
+				region[i] = INNER_RING;
+			} else if(x >= xMin && x <= xMax && y >= yMin && y <= yMax) {
+				region[i] = CUT;
+			} else {
+				region[i] = TEST;
+			}
+			regionStart[region[i] + 1]++;
+		}
+		for(int g = 0; g < 4; g++) {
+			regionStart[g + 1] += regionStart[g];
+		}
+		indices = new int[n];
+		int[] fill = new int[4];
+		for(int i = 0; i < n; i++) {
+			indices[regionStart[region[i]] + fill[region[i]]++] = i;
+		}
+	}
+	
+	/**
+	* Chooses the color of every circle. Circles in the inner and outer rings and in 
+	* the cut of the C get a random color from the center array, and the rest of the 
+	* middle ring (the C itself) gets a random color from the test array. 
+	* 
+	* @param center An array of colors for the center and outer rings of circles in the image
+	* @param test An array of colors for the circles that make up the C 
+	* @param random The source of the random color choices 
+	* @param colorsOut The array to write the color of each circle to 
+	*/
+	public void pickColors(int[] center, int[] test, SplittableRandom random, int[] colorsOut) {
+		// The outer ring, inner ring and cut come one after another, so they are one loop 
+		for(int k = regionStart[OUTER_RING]; k < regionStart[TEST]; k++) {
+			colorsOut[indices[k]] = center[random.nextInt(center.length)];
+		}
+		for(int k = regionStart[TEST]; k < regionStart[TEST + 1]; k++) {
+			colorsOut[indices[k]] = test[random.nextInt(test.length)];
+		}
+	}
+	
+	/**
+	* @param region OUTER_RING, INNER_RING, CUT or TEST
+	* @return The number of circles in the region 
+	*/
+	public int regionSize(int region) {
+		return regionStart[region + 1] - regionStart[region];
+	}
+	
+	/**
+	* @param region OUTER_RING, INNER_RING, CUT or TEST
+	* @param k Which circle of the region, from 0 to regionSize(region)-1
+	* @return The number of the circle in the layout 
+	*/
+	public int circleInRegion(int region, int k) {
+		return indices[regionStart[region] + k];
+	}
+}
@@ -0,0 +1,225 @@
+/**
+* A Bayesian adaptive threshold procedure in the style of QUEST (Watson and Pelli, 1983).
+* Instead of stepping up and down by a fixed amount, it keeps a probability for every 
+* possible threshold (and, optionally, every possible slope of the psychometric function) 
+* on a grid, updates them with each response, and shows the next stimulus at the
+* current best estimate of the threshold. This usually needs far fewer trials than the 
+* staircase for the same precision. 
+* 
+* The chance of a correct response at intensity x for threshold t and slope s is 
+* guessRate + (1 - guessRate - lapseRate) / (1 + exp(-s*(x - t))), where x - t is 
+* measured in the direction of increasing intensity, so the threshold is the intensity 
+* halfway between guessing and always being right. Stimuli are always shown at one of 
+* the grid values, so the chance of each response for every stimulus, threshold and 
+* slope is worked out once in the constructor, and each update is one multiply and 
+* a sum over the grid. 
+* 
+* The threshold is reached when the standard deviation of the threshold drops below a 
+* target, or after a maximum number of trials. 
+* 
+* @version 2026-10-18
+*/
+public class QuestEstimator implements ThresholdEstimator {
+	
+	private final double minVal;
+	private final double gridStep;
+	private final int levels;
+	private final int slopes;
+	private final double targetSD;
+	private final int maxTrials;
+	
+	// The probability of each threshold and slope, at index slope*levels + threshold 
+	private final double[] posterior;
+	// The chance of a correct response to the stimulus at grid value x is 
+	// pCorrect[x][slope*levels + threshold], and of an incorrect one pIncorrect[x][...] 
+	private final double[][] pCorrect;
+	private final double[][] pIncorrect;
+	
+	private int current;
+	private int trials;
+	private boolean thresholdReached;
+	
+	/**
+	* Constructor with a fixed slope, a four-way choice (the directions of the C), 
+	* 101 grid values and a stop when the standard deviation of the threshold is 
+	* an eighth of the prior's or after 64 trials. 
+	* 
+	* @param startValue The first stimulus value and the center of the prior for the threshold 
+	* @param priorSD The standard deviation of the prior for the threshold 
+	* @param minVal The smallest value the threshold (and a stimulus) can have 
+	* @param maxVal The largest value the threshold (and a stimulus) can have 
+	* @param shouldIncrease true if the stimulus becomes less intense as its value increases numerically, false otherwise 
+	*/
+	public QuestEstimator(double startValue, double priorSD, double minVal, double maxVal, boolean shouldIncrease) {
+		this(startValue, priorSD, minVal, maxVal, 101, new double[] {4/priorSD}, 0.25, 0.02, shouldIncrease, priorSD/8, 64);
+	}
+	
+	/**
+	* Constructor for a QuestEstimator 
+	* 
+	* @param startValue The first stimulus value and the center of the prior for the threshold 
+	* @param priorSD The standard deviation of the prior for the threshold 
+	* @param minVal The smallest value the threshold (and a stimulus) can have 
+	* @param maxVal The largest value the threshold (and a stimulus) can have 
+	* @param levels The number of grid values from minVal to maxVal 
+	* @param slopeValues The possible slopes of the psychometric function, per unit of value; the prior is the same for each 
+	* @param guessRate The chance of a correct response when the stimulus cannot be seen 
+	* @param lapseRate The chance of an incorrect response when the stimulus is easy to see 
+	* @param shouldIncrease true if the stimulus becomes less intense as its value increases numerically, false otherwise 
+	* @param targetSD The standard deviation of the threshold at which to stop 
+	* @param maxTrials The number of trials after which to stop anyway 
+	*/
+	public QuestEstimator(double startValue, double priorSD, double minVal, double maxVal, int levels, double[] slopeValues, 
+			double guessRate, double lapseRate, boolean shouldIncrease, double targetSD, int maxTrials) {
+		if(levels < 2 || slopeValues.length == 0 || !(maxVal > minVal) || !(priorSD > 0)) {
+			throw new IllegalArgumentException("Need at least two levels, a slope, maxVal > minVal and priorSD > 0");
+		}
+		this.minVal = minVal;
+		this.gridStep = (maxVal - minVal) / (levels - 1);
+		this.levels = levels;
+		this.slopes = slopeValues.length;
+		this.targetSD = targetSD;
+		this.maxTrials = maxTrials;
+		
+		// Stimuli get easier to see as the value goes up unless shouldIncrease 
+		double intensityDirection = shouldIncrease ? -1 : 1;
+		int cells = levels * slopes;
+		pCorrect = new double[levels][cells];
+		pIncorrect = new double[levels][cells];
+		for(int x = 0; x < levels; x++) {
+			for(int s = 0; s < slopes; s++) {
+				for(int t = 0; t < levels; t++) {
+					double z = slopeValues[s] * intensityDirection * (x - t) * gridStep;
+					double p = guessRate + (1 - guessRate - lapseRate) / (1 + Math.exp(-z));
+					pCorrect[x][s*levels + t] = p;
+					pIncorrect[x][s*levels + t] = 1 - p;
+				}
+			}
+		}
+		
+		posterior = new double[cells];
+		for(int s = 0; s < slopes; s++) {
+			for(int t = 0; t < levels; t++) {
+				double d = (valueOf(t) - startValue) / priorSD;
+				posterior[s*levels + t] = Math.exp(-0.5*d*d);
+			}
+		}
+		normalize(posterior);
+		current = indexOf(startValue);
+	}
+	
+	/**
+	* Records the response to the current stimulus and moves to the new best estimate 
+	* of the threshold 
+	* 
+	* @param isCorrect true if the user correctly responded to the last stimulus, false otherwise 
+	* @return The value of the next stimulus 
+	*/
+	public double getNextVal(boolean isCorrect) {
+		double[] likelihood = isCorrect ? pCorrect[current] : pIncorrect[current];
+		for(int i = 0; i < posterior.length; i++) {
+			posterior[i] *= likelihood[i];
+		}
+		normalize(posterior);
+		trials++;
+		
+		double mean = thresholdMean(posterior, null);
+		double var = 0;
+		for(int s = 0; s < slopes; s++) {
+			for(int t = 0; t < levels; t++) {
+				double d = valueOf(t) - mean;
+				var += posterior[s*levels + t] * d * d;
+			}
+		}
+		if(Math.sqrt(var) <= targetSD || trials >= maxTrials) {
+			thresholdReached = true;
+		}
+		current = indexOf(mean);
+		return valueOf(current);
+	}
+	
+	/**
+	* @return The value of the stimulus currently being shown 
+	*/
+	public double getCurrentVal() {
+		return valueOf(current);
+	}
+	
+	/**
+	* Gets the value that getNextVal would return for the given response, without 
+	* recording anything 
+	* 
+	* @param isCorrect true for the value after a correct response, false for the value after an incorrect one 
+	* @return The value of the next stimulus for that response 
+	*/
+	public double peekNextVal(boolean isCorrect) {
+		return valueOf(indexOf(thresholdMean(posterior, isCorrect ? pCorrect[current] : pIncorrect[current])));
+	}
+	
+	/**
+	* Returns true if the standard deviation of the threshold is below the target, 
+	* or the maximum number of trials has been reached 
+	* 
+	* @return true if the threshold can be determined from the given data; false otherwise 
+	*/
+	public boolean thresholdReached() {
+		return thresholdReached;
+	}
+	
+	/**
+	* Gets the threshold if one has been reached: the mean of the threshold over 
+	* the probabilities from all the responses. 
+	* 
+	* @return the threshold, if one has been reached 
+	*/
+	public double getThreshold() throws Exception {
+		if(thresholdReached) {
+			return thresholdMean(posterior, null);
+		} else {
+			throw new Exception("Tried to get threshold before threshold was reached");
+		}
+	}
+	
+	/**
+	* @return The number of responses recorded so far 
+	*/
+	public int trials() {
+		return trials;
+	}
+	
+	private double valueOf(int t) {
+		return minVal + t * gridStep;
+	}
+	
+	private int indexOf(double value) {
+		long t = Math.round((value - minVal) / gridStep);
+		return (int)Math.max(0, Math.min(levels - 1, t));
+	}
+	
+	// The mean threshold over the given probabilities, each multiplied first by 
+	// the matching likelihood if there is one 
+	private double thresholdMean(double[] p, double[] likelihood) {
+		double sum = 0;
+		double weighted = 0;
+		for(int s = 0; s < slopes; s++) {
+			int row = s*levels;
+			for(int t = 0; t < levels; t++) {
+				double w = likelihood == null ? p[row + t] : p[row + t] * likelihood[row + t];
+				sum += w;
+				weighted += w * t;
+			}
+		}
+		return minVal + weighted / sum * gridStep;
+	}
+	
+	private static void normalize(double[] p) {
+		double sum = 0;
+		for(int i = 0; i < p.length; i++) {
+			sum += p[i];
+		}
+		double scale = 1 / sum;
+		for(int i = 0; i < p.length; i++) {
+			p[i] *= scale;
+		}
+	}
+}
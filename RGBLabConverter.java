@@ -4,7 +4,9 @@
 * vice versa, as well as a CSV file containing the gamma value and lower limits for each color
 * channel for use when converting compressed RGB to linear RGB and vice versa. The lower
 * limit is meant to correct for the fact that device readings usually do not reach 0 when 
-* measuring color. 
+* measuring color. A measured gamma table can be used in place of the gamma model by 
+* passing a LUTTransfer to the second constructor, and calibrated adds the video card 
+* calibration curves from an ArgyllCMS .cal file or ICC profile. 
 * 
 * @author Caroline Danzi
 * @version 2017-04-02
@@ -13,12 +15,27 @@ import java.util.Vector;
 import java.util.Scanner;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 public class RGBLabConverter {
 	
-	private Vector<String> matrices;
-	private Vector<String> rgbModelValues;
-	private Vector<Double> whitePoint;
+	// Both matrices are stored in the order they are read from the file, so that
+	// element (i, j) of the 3x3 matrix is at index i + 3*j 
+	private final double[] rgbToXYZ;
+	private final double[] xyzToRGB;
+	private final TransferFunction transfer;
+	private final double[] whitePoint;
 	private final double delta = 6.0/29.0;
+	private final double deltaCubed = delta * delta * delta;
+	// Precomputed RGB to L*a*b* values for this profile; null until one is loaded or built 
+	private volatile RGBLabTable table;
+	// Grid to interpolate L*a*b* to RGB conversions from; null to compute them directly 
+	private volatile LabToRGBGrid labGrid;
+	// The hash from profileKey; null until it is first asked for 
+	private volatile String key;
+	// Whether the lookup table and grid in use are fixed, as they are for converters that are shared 
+	private final boolean fixed;
 	
 	/**
 	* Constructor
@@ -28,9 +45,140 @@ public class RGBLabConverter {
 	* @param whitePoint A vector representing the XYZ values for the white point (typically D65) to use in conversions 
 	*/ 
 	public RGBLabConverter(String matrixFile, String modelFile, Vector<Double> whitePoint) throws FileNotFoundException {
-		this.matrices = parseCSV(matrixFile);
-		this.rgbModelValues = parseCSV(modelFile);
-		this.whitePoint = whitePoint;
+		// Parse the files once here so that none of the conversions 
+		// need to touch the Strings again 
+		Vector<String> matrices = parseCSV(matrixFile);
+		Vector<String> rgbModelValues = parseCSV(modelFile);
+		// Use half the length since the file contains both the RGB to XYZ and XYZ to RGB matrices 
+		this.rgbToXYZ = parseMatrix(matrices, 0, matrices.size()/2);
+		this.xyzToRGB = parseMatrix(matrices, matrices.size()/2, matrices.size());
+		this.transfer = parseModel(rgbModelValues);
+		this.whitePoint = new double[] {whitePoint.get(0), whitePoint.get(1), whitePoint.get(2)};
+		this.fixed = false;
+	}
+	
+	/**
+	* Constructor that uses the white of the display itself as the white point: the XYZ 
+	* of red, green and blue at full strength together 
+	* 
+	* @param matrixFile The name of the CSV file containing the RGB-XYZ matrices 
+	* @param modelFile The name of the CSV file containing the gamma value and lower limits for each color channel
+	*/ 
+	public RGBLabConverter(String matrixFile, String modelFile) throws FileNotFoundException {
+		Vector<String> matrices = parseCSV(matrixFile);
+		this.rgbToXYZ = parseMatrix(matrices, 0, matrices.size()/2);
+		this.xyzToRGB = parseMatrix(matrices, matrices.size()/2, matrices.size());
+		this.transfer = parseModel(parseCSV(modelFile));
+		this.whitePoint = new double[3];
+		for(int i = 0; i < 3; i++) {
+			whitePoint[i] = rgbToXYZ[i] + rgbToXYZ[i+3] + rgbToXYZ[i+6];
+		}
+		this.fixed = false;
+	}
+	
+	/**
+	* Constructor for a converter with its own transfer function, such as a LUTTransfer 
+	* made from the measured gamma table 
+	* 
+	* @param matrixFile The name of the CSV file containing the RGB-XYZ matrices 
+	* @param transfer The transfer function between compressed and linear RGB 
+	* @param whitePoint A vector representing the XYZ values for the white point (typically D65) to use in conversions 
+	*/ 
+	public RGBLabConverter(String matrixFile, TransferFunction transfer, Vector<Double> whitePoint) throws FileNotFoundException {
+		Vector<String> matrices = parseCSV(matrixFile);
+		this.rgbToXYZ = parseMatrix(matrices, 0, matrices.size()/2);
+		this.xyzToRGB = parseMatrix(matrices, matrices.size()/2, matrices.size());
+		this.transfer = transfer;
+		this.whitePoint = new double[] {whitePoint.get(0), whitePoint.get(1), whitePoint.get(2)};
+		this.fixed = false;
+	}
+	
+	/**
+	* Constructor for a converter whose matrices are already in memory, such as ones 
+	* read from an ICC profile 
+	* 
+	* @param rgbToXYZ The XYZ of each primary: X, Y and Z of red, then of green, then of blue 
+	* @param xyzToRGB The inverse of rgbToXYZ, in the same order 
+	* @param transfer The transfer function between compressed and linear RGB 
+	* @param whitePoint The XYZ values for the white point to use in conversions 
+	*/ 
+	public RGBLabConverter(double[] rgbToXYZ, double[] xyzToRGB, TransferFunction transfer, double[] whitePoint) {
+		this.rgbToXYZ = rgbToXYZ.clone();
+		this.xyzToRGB = xyzToRGB.clone();
+		this.transfer = transfer;
+		this.whitePoint = whitePoint.clone();
+		this.fixed = false;
+	}
+	
+	// A fixed copy of a converter using the given table and grid, which may be null 
+	private RGBLabConverter(RGBLabConverter profile, RGBLabTable table, LabToRGBGrid labGrid) {
+		this.rgbToXYZ = profile.rgbToXYZ;
+		this.xyzToRGB = profile.xyzToRGB;
+		this.transfer = profile.transfer;
+		this.whitePoint = profile.whitePoint;
+		this.key = profile.key;
+		this.table = table;
+		this.labGrid = labGrid;
+		this.fixed = true;
+	}
+	
+	/**
+	* Gets a copy of this converter that converts the same way, with the same lookup 
+	* table and grid in use, and that cannot be switched to a different table or grid. 
+	* Copies like this can be shared between stations or simulations without one of 
+	* them changing how the others convert. 
+	* 
+	* @return The fixed copy, or this converter if it is already fixed 
+	*/
+	public RGBLabConverter fixedCopy() {
+		return fixed ? this : new RGBLabConverter(this, table, labGrid);
+	}
+	
+	/**
+	* @return true if the lookup table and grid in use cannot be changed 
+	*/
+	public boolean isFixed() {
+		return fixed;
+	}
+	
+	/**
+	* Gets a fixed copy of this converter that reads RGB to L*a*b* conversions from the 
+	* lookup table for this display profile, loading it from the cache directory or 
+	* building and writing it there if it is not cached yet. This converter is not changed. 
+	* 
+	* @param cacheDir The directory holding the cached tables 
+	* @return The fixed copy using the table 
+	*/
+	public RGBLabConverter withLookupTable(File cacheDir) throws IOException {
+		RGBLabTable t = RGBLabTable.load(cacheDir, profileKey());
+		if(t == null) {
+			t = RGBLabTable.build(this, cacheDir);
+		}
+		return new RGBLabConverter(this, t, labGrid);
+	}
+	
+	/**
+	* Gets a fixed copy of this converter that interpolates Lab to RGB conversions from 
+	* the shared grid of the given resolution. This converter is not changed. 
+	* 
+	* @param resolution The number of grid points along each of the L*, a* and b* axes 
+	* @return The fixed copy using the grid 
+	*/
+	public RGBLabConverter withLabToRGBGrid(int resolution) {
+		return new RGBLabConverter(this, table, LabToRGBGrid.forConverter(this, resolution));
+	}
+	
+	/**
+	* Makes a converter for this display with video card calibration curves loaded. The 
+	* curves and this converter's transfer function are combined into one LUT up front, 
+	* so the new converter is as fast as this one. This converter's model should have 
+	* been measured without any calibration loaded. 
+	* 
+	* @param calibration The calibration curves, from a .cal file or an ICC profile 
+	* @return A converter for the calibrated display 
+	*/
+	public RGBLabConverter calibrated(CalibrationCurves calibration) {
+		return new RGBLabConverter(rgbToXYZ, xyzToRGB, calibration.applyTo(transfer), whitePoint);
 	}
 	
 	/**
@@ -40,27 +188,13 @@ public class RGBLabConverter {
 	* @return A vector of doubles that represent the L*a*b* color equivalent to the given RGB color 
 	*/
 	public Vector<Double> RGBToLab(int rgbColor) {
-		// First we need to convert the color into a vector 
-		Vector<Double> rgbVector = new Vector<Double>();
-		rgbVector.add((double)(rgbColor >> 16 & 0xFF));
-		rgbVector.add((double)(rgbColor >> 8 & 0xFF));
-		rgbVector.add((double)(rgbColor & 0xFF));
-		
-		// Compressed RGB to Linear RGB
-		Vector<Double> uncompressed = compressedRGBToLinearRGB(rgbVector);
-		for(Double d : uncompressed) {
-			System.out.println("Uncompressed value: " + d);
-		}
-		
-		// Linear RGB to CIEXYZ 		
-		Vector<Double> xyz = RGBToXYZ(uncompressed); 
-		for(Double d : xyz) {
-			System.out.println("RGB to XYZ: " + d);
-		}
-		
-		// CIEXYZ to CIEL*a*b* 
-		Vector<Double> lab = XYZToLab(xyz);
-		return lab;
+		double[] lab = new double[3];
+		RGBToLab(rgbColor, lab, 0);
+		Vector<Double> ret = new Vector<Double>();
+		ret.add(lab[0]);
+		ret.add(lab[1]);
+		ret.add(lab[2]);
+		return ret;
 	}
 	
 	/**
@@ -70,188 +204,287 @@ public class RGBLabConverter {
 	* @return The device-specific, gamma-compressed RGB color equivalent to the given L*a*b* color 
 	*/
 	public int LabToRGB(Vector<Double> lab) {
-		// Lab to XYZ
-		Vector<Double> xyz = LabToXYZ(lab);
-		for(Double d : xyz) {
-			System.out.println("Lab to XYZ: " + d);
-		}
-		
-		// XYZ to linear RGB 
-		Vector<Double> rgb = XYZToRGB(xyz);
-		for(Double d : rgb) {
-			System.out.println("XYZ to RGB: " + d);
+		return LabToRGB(lab.get(0), lab.get(1), lab.get(2));
+	}
+	
+	/**
+	* Converts a batch of RGB colors to CIEL*a*b*. The L*a*b* values are written 
+	* to labOut three at a time, so the color rgb[i] ends up in labOut[3*i], 
+	* labOut[3*i+1] and labOut[3*i+2]. Nothing is allocated while converting. 
+	* 
+	* @param rgb The integer representations of the gamma-compressed RGB colors to convert
+	* @param labOut The array to write the L*a*b* values to; must hold at least 3*rgb.length values 
+	*/
+	public void convertRGBToLab(int[] rgb, double[] labOut) {
+		if(labOut.length < 3*rgb.length) {
+			throw new IllegalArgumentException("labOut must hold 3 values for each RGB color");
 		}
-		
-		// Linear RGB to gamma-compressed RGB 
-		Vector<Double> compressed = linearRGBToCompressedRGB(rgb);
-		for(Double d : compressed) {
-			System.out.println("Compressed value: " + d); 
+		for(int i = 0; i < rgb.length; i++) {
+			RGBToLab(rgb[i], labOut, 3*i);
 		}
-		
-		// Change each double to an int and return an individual int 
-		// TODO: intValue() only truncates; it does not round 
-		return (compressed.get(0).intValue() << 16) | (compressed.get(1).intValue() << 8) | compressed.get(2).intValue(); 
 	}
 	
 	/**
-	* Converts a device-specific, gamma-compressed RGB color to an 
-	* equivalent device-specific, linear RGB color using the formulas 
-	* described in https://en.wikipedia.org/wiki/SRGB 
+	* Converts a batch of CIEL*a*b* colors to RGB. The L*a*b* values are read 
+	* three at a time, so lab[3*i], lab[3*i+1] and lab[3*i+2] become rgbOut[i]. 
+	* Nothing is allocated while converting. 
 	* 
-	* @param compRGB A vector representing the device-specific, gamma-compressed RGB color to convert 
-	* @return A vector representing the equivalent linear RGB color 
+	* @param lab The L*a*b* values to convert; its length must be a multiple of 3 
+	* @param rgbOut The array to write the gamma-compressed RGB colors to; must hold at least lab.length/3 colors
 	*/
-	private Vector<Double> compressedRGBToLinearRGB(Vector<Double> compRGB) {
-		// Ignore the labels in the rgbModelValues vector 
-		Vector<Double> linear = new Vector<Double>();
-		double gamma = Double.parseDouble(rgbModelValues.get(1));
-		linear.add(uncompress(compRGB.get(0), gamma, Double.parseDouble(rgbModelValues.get(3))));
-		linear.add(uncompress(compRGB.get(1), gamma, Double.parseDouble(rgbModelValues.get(5))));
-		linear.add(uncompress(compRGB.get(2), gamma, Double.parseDouble(rgbModelValues.get(7))));	
-		return linear;
+	public void convertLabToRGB(double[] lab, int[] rgbOut) {
+		if(lab.length % 3 != 0 || rgbOut.length < lab.length/3) {
+			throw new IllegalArgumentException("lab must hold 3 values for each color in rgbOut");
+		}
+		for(int i = 0; i < lab.length/3; i++) {
+			rgbOut[i] = LabToRGB(lab[3*i], lab[3*i+1], lab[3*i+2]);
+		}
 	}
 	
 	/**
-	* Takes a compressed RGB value from a color channel (red, green, or blue) and 
-	* uncompresses it according to the model lowerLimit+(1-lowerLimit)*POW(value,gamma)
+	* Converts one RGB color to CIEL*a*b* and writes the result into an existing array. 
+	* If a lookup table has been loaded, the result is read from the table; otherwise it 
+	* is computed directly. 
 	* 
-	* @param value The value of the gamma-compressed color channel to convert
-	* @param gamma The value of gamma
-	* @param lowerLimit The lower limit (correction) based on the data for a given monitor 
-	* @return The uncompressed (linear RGB) value of the given compressed RGB value 
+	* @param rgbColor The integer representation of the gamma-compressed RGB color to convert
+	* @param labOut The array to write the L*a*b* values to
+	* @param offset The index in labOut to write L* to; a* and b* follow it 
 	*/
-	private double uncompress(double value, double gamma, double lowerLimit) {
-		return lowerLimit + (1-lowerLimit)*Math.pow(value/255, gamma);
+	public void RGBToLab(int rgbColor, double[] labOut, int offset) {
+		RGBLabTable t = table;
+		if(t != null) {
+			t.get(rgbColor, labOut, offset);
+		} else {
+			computeRGBToLab(rgbColor, labOut, offset);
+		}
 	}
 	
 	/**
-	* Converts device-specific linear RGB color to an equivalent
-	* gamma-compressed, device-specific RGB color using the formulas
-	* described in https://en.wikipedia.org/wiki/SRGB
+	* Loads the cached RGB to L*a*b* lookup table for this display profile, if one exists. 
+	* Once loaded, every RGB to L*a*b* conversion is a read from the memory-mapped table. 
+	* A fixed converter cannot load a table; use withLookupTable instead. 
 	* 
-	* @param linRGB A vector representing the linear RGB color to convert
-	* @return A vector representation of the equivalent device-specific, gamma-compressed RGB color 
+	* @param cacheDir The directory holding the cached tables 
+	* @return true if a table was found and loaded; false if conversions will still be computed directly 
 	*/
-	private Vector<Double> linearRGBToCompressedRGB(Vector<Double> linRGB) {
-		// Ignore the labels in the rgbModelValues vector 
-		Vector<Double> compressed = new Vector<Double>();
-		double gamma = Double.parseDouble(rgbModelValues.get(1));
-		compressed.add(compress(linRGB.get(0), gamma, Double.parseDouble(rgbModelValues.get(3))));
-		compressed.add(compress(linRGB.get(1), gamma, Double.parseDouble(rgbModelValues.get(5))));
-		compressed.add(compress(linRGB.get(2), gamma, Double.parseDouble(rgbModelValues.get(7))));	
-		return compressed;
+	public boolean loadLookupTable(File cacheDir) throws IOException {
+		checkNotFixed();
+		RGBLabTable t = RGBLabTable.load(cacheDir, profileKey());
+		if(t != null) {
+			table = t;
+		}
+		return t != null;
 	}
 	
 	/**
-	* Converts a linear RGB value for a specific color channel (red, green, or blue) 
-	* to a gamma-compressed, device-specific RGB value based on a value of
-	* gamma and a lower limit (the lowest value in the data for a given display).
-	* Uses the model: POWER((value-lowerLimit)/(1-lowerLimit), 1/gamma)
+	* Builds the RGB to L*a*b* lookup table for this display profile in parallel, 
+	* writes it to the cache directory, and loads it. This takes much longer than 
+	* loading a cached table, so use loadLookupTable first. A fixed converter cannot 
+	* build a table; use withLookupTable instead. 
 	* 
-	* @param value The value of the linear RGB color channel to compress 
-	* @param gamme The value of gamma
-	* @param lowerLimit The value of the lower limit (correction) based on display data 
-	* @return The gamma-compressed value of the given linear RGB value in the range [0,255] 
+	* @param cacheDir The directory to write the table to 
+	*/
+	public void buildLookupTable(File cacheDir) throws IOException {
+		checkNotFixed();
+		table = RGBLabTable.build(this, cacheDir);
+	}
+	
+	/**
+	* @return true if RGB to L*a*b* conversions are read from a lookup table 
+	*/
+	public boolean hasLookupTable() {
+		return table != null;
+	}
+	
+	/**
+	* @return The XYZ values of the white point used in conversions 
 	*/
-	private double compress(double value, double gamma, double lowerLimit) {
-		return 255*constrain(Math.pow((value - lowerLimit)/(1-lowerLimit), 1/gamma), 0, 1);
+	public double[] getWhitePoint() {
+		return whitePoint.clone();
 	}
 	
 	/**
-	* Converts a device-specific RGB color to an equivalent color
-	* in the CIEXYZ color space using a matrix loaded from a given CSV file
+	* Gets a hash of everything that affects the conversions: both matrices, the 
+	* parameters of the transfer function and the white point. Two converters with the same key will 
+	* convert every color the same way. 
 	* 
-	* @param rgb The RGB color to convert 
-	* @return A Vector representing the X, Y, and Z values for this RGB color 
+	* @return The hash as a hexadecimal String 
 	*/
-	private Vector<Double> RGBToXYZ(Vector<Double> rgbVector) {
-		// Get the actual, numerical matrix from the parsed file
-		// since it will still have the String labels 
-		Vector<Double> rgbToxyz = new Vector<Double>();
-		String s;
-		int row = 0, col = 0;
-		// Use half the length since this also contains the XYZ to RGB matrix 
-		for(int i = 0; i < matrices.size()/2; i++) {
-			s = matrices.get(i);
-			if(isNumeric(s)) {
-				rgbToxyz.add(Double.parseDouble(s));
+	public String profileKey() {
+		String k = key;
+		if(k == null) {
+			k = computeProfileKey();
+			key = k;
+		}
+		return k;
+	}
+	
+	private String computeProfileKey() {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			double[][] inputs = {rgbToXYZ, xyzToRGB, transfer.parameters(), whitePoint};
+			for(double[] values : inputs) {
+				for(double v : values) {
+					long bits = Double.doubleToLongBits(v);
+					for(int i = 0; i < 8; i++) {
+						md.update((byte)(bits >>> (8*i)));
+					}
+				}
+			}
+			StringBuilder key = new StringBuilder();
+			byte[] digest = md.digest();
+			// Half of the digest is plenty to tell profiles apart 
+			for(int i = 0; i < 8; i++) {
+				key.append(String.format("%02x", digest[i]));
 			}
+			return key.toString();
+		} catch(NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256 
+			throw new RuntimeException(e);
 		}
+	}
+	
+	/**
+	* Converts one RGB color to CIEL*a*b* with the display model, ignoring any lookup table 
+	* 
+	* @param rgbColor The integer representation of the gamma-compressed RGB color to convert
+	* @param labOut The array to write the L*a*b* values to
+	* @param offset The index in labOut to write L* to; a* and b* follow it 
+	*/
+	void computeRGBToLab(int rgbColor, double[] labOut, int offset) {
+		// Compressed RGB to Linear RGB
+		double r = transfer.uncompress(rgbColor >> 16 & 0xFF, 0);
+		double g = transfer.uncompress(rgbColor >> 8 & 0xFF, 1);
+		double b = transfer.uncompress(rgbColor & 0xFF, 2);
 		
-		// Multiply the RGB vector by the matrix to get the XYZ values
-		return  multiply(rgbToxyz, rgbVector, 3, 3);
+		// Linear RGB to CIEXYZ 
+		double x = rgbToXYZ[0]*r + rgbToXYZ[3]*g + rgbToXYZ[6]*b;
+		double y = rgbToXYZ[1]*r + rgbToXYZ[4]*g + rgbToXYZ[7]*b;
+		double z = rgbToXYZ[2]*r + rgbToXYZ[5]*g + rgbToXYZ[8]*b;
+		
+		// CIEXYZ to CIEL*a*b* using the formulas from 
+		// https://en.wikipedia.org/wiki/Lab_color_space
+		double fy = f(y / whitePoint[1]);
+		labOut[offset] = 116 * fy - 16;
+		labOut[offset+1] = 500 * (f(x / whitePoint[0]) - fy);
+		labOut[offset+2] = 200 * (fy - f(z / whitePoint[2]));
 	}
 	
 	/**
-	* Converts a color in the CIEXYZ color space to device-specific 
-	* RGB using a matrix loaded from a given CSV file
+	* Converts one CIEL*a*b* color to RGB without boxing any of the channels. If a 
+	* Lab to RGB grid is in use, the result is interpolated from the grid; otherwise 
+	* it is computed directly. 
 	* 
-	* @param xyz The XYZ color to convert
-	* @return The RGB color that corresponds to the given XYZ color 
+	* @param l The L* value of the color to convert
+	* @param a The a* value of the color to convert
+	* @param b The b* value of the color to convert
+	* @return The device-specific, gamma-compressed RGB color equivalent to the given L*a*b* color 
 	*/
-	private Vector<Double> XYZToRGB(Vector<Double> xyz) {
-		// Get the actual, numerical matrix from the parsed file
-		// since it will still have the String labels 
-		Vector<Double> xyzTorgb = new Vector<Double>();
-		String s;
-		// Use half the length since this also contains the XYZ to RGB matrix 
-		for(int i = matrices.size()/2; i < matrices.size(); i++) {
-			s = matrices.get(i);
-			if(isNumeric(s)) {
-				xyzTorgb.add(Double.parseDouble(s));
-			}
+	public int LabToRGB(double l, double a, double b) {
+		LabToRGBGrid grid = labGrid;
+		if(grid != null) {
+			return grid.LabToRGB(l, a, b);
 		}
-		//Multiply the matrix by the xyz vector to get the rgb colors
-		Vector<Double> rgbVector = multiply(xyzTorgb, xyz, 3, 3);
-		for(int i = 0; i < rgbVector.size(); i++) {
-			// Linear RGB should be in the range [0,1] 
-			rgbVector.set(i, constrain(rgbVector.get(i), 0, 1));
-		}
-		return rgbVector;
+		return computeLabToRGB(l, a, b);
 	}
 	
 	/**
-	* Converts a color in the CIEXYZ color space to an
-	* equivalent color in CIEL*a*b* using formulas from
-	* https://en.wikipedia.org/wiki/Lab_color_space
+	* Makes LabToRGB interpolate from a precomputed grid over the L*a*b* volume rather 
+	* than computing each conversion directly. The grid is built the first time any 
+	* converter for this display profile asks for this resolution and is shared after that. 
+	* A fixed converter cannot switch to a grid; use withLabToRGBGrid instead. 
 	* 
-	* Expected vector format: <x, y, z>
-	* Return vector format: <L*, a*, b*> 
+	* @param resolution The number of grid points along each of the L*, a* and b* axes 
+	* @return The grid now in use, which can report its maximum interpolation error 
+	*/
+	public LabToRGBGrid useLabToRGBGrid(int resolution) {
+		checkNotFixed();
+		LabToRGBGrid grid = LabToRGBGrid.forConverter(this, resolution);
+		labGrid = grid;
+		return grid;
+	}
+	
+	/**
+	* Converts one CIEL*a*b* color to RGB with the display model, ignoring any grid 
 	* 
-	* @param xyz A vector representation of the CIEXYZ color to convert 
-	* @return A vector representing the L*a*b* color euqivalent to the given CIEXYZ color 
+	* @param l The L* value of the color to convert
+	* @param a The a* value of the color to convert
+	* @param b The b* value of the color to convert
+	* @return The device-specific, gamma-compressed RGB color equivalent to the given L*a*b* color 
 	*/
-	private Vector<Double> XYZToLab(Vector<Double> xyz) {
-		Vector<Double> lab = new Vector<Double>();
-		double yOverYn = xyz.get(1) / whitePoint.get(1);
+	int computeLabToRGB(double l, double a, double b) {
+		// CIEL*a*b* to CIEXYZ using the formulas from 
+		// https://en.wikipedia.org/wiki/Lab_color_space 
+		double fraction = (l + 16) / 116.0;
+		double x = whitePoint[0] * fInverse(fraction + a/500.0);
+		double y = whitePoint[1] * fInverse(fraction);
+		double z = whitePoint[2] * fInverse(fraction - b/200.0);
 		
-		lab.add(116 * f(yOverYn) - 16);
-		lab.add(500 * (f(xyz.get(0) / whitePoint.get(0)) - f(yOverYn)));
-		lab.add(200 * (f(yOverYn) - f(xyz.get(2) / whitePoint.get(2))));
-		return lab; 
+		// CIEXYZ to gamma-compressed RGB, with each channel changed to an int 
+		// TODO: the cast only truncates; it does not round 
+		return ((int)compressedChannel(x, y, z, 0) << 16) 
+			| ((int)compressedChannel(x, y, z, 1) << 8) 
+			| (int)compressedChannel(x, y, z, 2);
 	}
 	
 	/**
-	* Converts a color in the CIEL*a*b* color space to
-	* an equivalent color in CIEXYZ using formulas from
-	* https://en.wikipedia.org/wiki/Lab_color_space 
+	* Converts one CIEL*a*b* color to linear RGB without constraining the channels 
+	* to [0,1], so the result changes smoothly with the L*a*b* values 
 	* 
-	* Expected vector format: <L*, a*, b*>
-	* Returns vector <x, y, z> 
+	* @param l The L* value of the color to convert
+	* @param a The a* value of the color to convert
+	* @param b The b* value of the color to convert
+	* @param rgbOut The array to write the red, green and blue values to
+	* @param offset The index in rgbOut to write red to; green and blue follow it 
+	*/
+	void computeLabToLinearRGB(double l, double a, double b, double[] rgbOut, int offset) {
+		double fraction = (l + 16) / 116.0;
+		double x = whitePoint[0] * fInverse(fraction + a/500.0);
+		double y = whitePoint[1] * fInverse(fraction);
+		double z = whitePoint[2] * fInverse(fraction - b/200.0);
+		for(int c = 0; c < 3; c++) {
+			rgbOut[offset+c] = xyzToRGB[c]*x + xyzToRGB[c+3]*y + xyzToRGB[c+6]*z;
+		}
+	}
+	
+	/**
+	* Uncompresses a code value of one color channel with the display model 
 	* 
-	* @param lab A vector representation of the CIEL*a*b* color to convert 
-	* @return A vector representing the CIEXYZ color equivalent to the given CIEL*a*b*color 
+	* @param code The gamma-compressed code value in the range [0,255]
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The linear value of the channel 
 	*/
-	private Vector<Double> LabToXYZ(Vector<Double> lab) {
-		Vector<Double> xyz = new Vector<Double>();
-		double fraction = (lab.get(0) + 16) / 116.0;
-		
-		xyz.add(whitePoint.get(0) * fInverse(fraction + lab.get(1)/500.0));
-		xyz.add(whitePoint.get(1) * fInverse(fraction));
-		xyz.add(whitePoint.get(2) * fInverse(fraction - lab.get(2)/200.0));
-		return xyz; 
+	double uncompressChannel(int code, int channel) {
+		return transfer.uncompress(code, channel);
 	}
-		
+	
+	/**
+	* Gets the smallest linear value of one color channel that compresses to a code 
+	* value or higher 
+	* 
+	* @param code The gamma-compressed code value in the range [0,255]; for 0, the darkest value the display shows
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The linear value where the code starts 
+	*/
+	double codeStart(int code, int channel) {
+		return transfer.codeStart(code, channel);
+	}
+	
+	/**
+	* Converts a CIEXYZ color to one gamma-compressed channel of device RGB
+	* 
+	* @param x The X value of the color
+	* @param y The Y value of the color
+	* @param z The Z value of the color
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The gamma-compressed value of the channel in the range [0,255] 
+	*/
+	private double compressedChannel(double x, double y, double z, int channel) {
+		// Linear RGB should be in the range [0,1] 
+		double linear = constrain(xyzToRGB[channel]*x + xyzToRGB[channel+3]*y + xyzToRGB[channel+6]*z, 0, 1);
+		return transfer.compress(linear, channel);
+	}
+	
 	/**
 	* Function used in the conversion of CIEXYZ to CIEL*a*b* 
 	* From https://en.wikipedia.org/wiki/Lab_color_space
@@ -262,7 +495,7 @@ public class RGBLabConverter {
 	* @return The output corresponding to the piecewise function 
 	*/ 
 	private double f(double x) {
-		if(x > Math.pow(delta, 3)) {
+		if(x > deltaCubed) {
 			return Math.cbrt(x);
 		} else {
 			return x/(3*delta*delta) + 4.0/29.0;
@@ -299,6 +532,28 @@ public class RGBLabConverter {
 		return Math.min(Math.max(min, value), max);
 	}
 	
+	// Shared converters must not change how they convert under the other users 
+	private void checkNotFixed() {
+		if(fixed) {
+			throw new IllegalStateException("This converter is fixed; use withLookupTable or withLabToRGBGrid to get a copy that uses a table or grid");
+		}
+	}
+	
+	/**
+	* Makes the transfer function from the values in the model CSV file 
+	* 
+	* @param rgbModelValues The contents of the model file 
+	* @return The gamma model 
+	*/
+	private static TransferFunction parseModel(Vector<String> rgbModelValues) {
+		// Ignore the labels in the rgbModelValues vector 
+		return new GammaTransfer(Double.parseDouble(rgbModelValues.get(1)), new double[] {
+			Double.parseDouble(rgbModelValues.get(3)),
+			Double.parseDouble(rgbModelValues.get(5)),
+			Double.parseDouble(rgbModelValues.get(7))
+		});
+	}
+	
 	/**
 	* Reads in a CSV file and returns a Vector representation of its contents. It will
 	* split the contents based on commas and whitespace and will trim white space off each element
@@ -331,28 +586,25 @@ public class RGBLabConverter {
 	}
 	
 	/**
-	* Matrix-vector multiplication (y = A * x). It takes in a one-dimensional Vector
-	* to represent the matrix to multiply. It uses the number of rows and columns
-	* (given as parameters) to determine the dimensions of the matrix. 
-	* Adapted from http://introcs.cs.princeton.edu/java/22library/Matrix.java.html
+	* Pulls the numbers out of part of a parsed matrix file, skipping the String labels.
+	* The matrix must be 3x3. 
 	* 
-	* @param a The one-dimensional Vector representing the matrix to mulitply 
-	* @param x The scalar vector to multiply by the matrix
-	* @param m The number of rows in the matrix
-	* @param n The number of columns in the matrix 
-	* @return A Vector that is the product of the matrix and vector 
+	* @param values The parsed contents of the matrix file
+	* @param from The index of the first element to look at
+	* @param to The index after the last element to look at 
+	* @return The nine numbers of the matrix in the order they appear in the file 
 	*/
-    private static Vector<Double> multiply(Vector<Double> a, Vector<Double> x, int m, int n) {
-        if (x.size() != n) throw new RuntimeException("Illegal matrix dimensions.");
-        Vector<Double> y = new Vector<Double>();
-		double sum = 0;
-        for (int i = 0; i < m; i++) {
-            for (int j = 0; j < n; j++) {
-                sum += a.get(i + m*j) * x.get(j);
+	private double[] parseMatrix(Vector<String> values, int from, int to) {
+		double[] matrix = new double[9];
+		int n = 0;
+		for(int i = from; i < to; i++) {
+			String s = values.get(i);
+			if(isNumeric(s)) {
+				if(n == matrix.length) throw new RuntimeException("Illegal matrix dimensions.");
+				matrix[n++] = Double.parseDouble(s);
 			}
-			y.add(sum);
-			sum = 0;
 		}
-        return y;
-    }
+		if(n != matrix.length) throw new RuntimeException("Illegal matrix dimensions.");
+		return matrix;
+	}
 }
@@ -0,0 +1,132 @@
+/**
+* A precomputed table of the CIEL*a*b* value of every one of the 2^24 device RGB colors
+* for a single display profile. The table is stored on disk as a binary file of floats
+* (L*, a*, b* for each RGB color, in RGB order) after a short header, and is memory-mapped
+* when loaded so that a lookup only has to read from the mapped file. The file name contains
+* a hash of the profile it was built from, so tables for different displays (or for a
+* re-measured display) can sit in the same cache directory. 
+* 
+* @version 2026-10-18
+*/
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+public class RGBLabTable {
+	
+	public static final int NUM_COLORS = 1 << 24;
+	// 'RLAB' followed by the format version and the number of colors 
+	private static final int MAGIC = 0x524C4142;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final long FILE_BYTES = HEADER_BYTES + 3L * 4 * NUM_COLORS;
+	
+	private final FloatBuffer lab;
+	
+	private RGBLabTable(FloatBuffer lab) {
+		this.lab = lab;
+	}
+	
+	/**
+	* Copies the L*a*b* value of an RGB color out of the table
+	* 
+	* @param rgbColor The integer representation of the gamma-compressed RGB color; the alpha bits are ignored
+	* @param labOut The array to write the L*a*b* values to
+	* @param offset The index in labOut to write L* to; a* and b* follow it 
+	*/
+	public void get(int rgbColor, double[] labOut, int offset) {
+		int i = 3 * (rgbColor & 0xFFFFFF);
+		labOut[offset] = lab.get(i);
+		labOut[offset+1] = lab.get(i+1);
+		labOut[offset+2] = lab.get(i+2);
+	}
+	
+	/**
+	* Gets the file a table for the given profile key is cached in
+	* 
+	* @param cacheDir The directory holding the cached tables
+	* @param profileKey The hash of the display profile, from RGBLabConverter.profileKey()
+	* @return The file for the table; it may not exist yet 
+	*/
+	public static File cacheFile(File cacheDir, String profileKey) {
+		return new File(cacheDir, "rgblab-" + profileKey + ".lut");
+	}
+	
+	/**
+	* Memory-maps a table that was previously built for the given profile
+	* 
+	* @param cacheDir The directory holding the cached tables
+	* @param profileKey The hash of the display profile, from RGBLabConverter.profileKey()
+	* @return The mapped table, or null if there is no valid cached table for this profile 
+	*/
+	public static RGBLabTable load(File cacheDir, String profileKey) throws IOException {
+		File file = cacheFile(cacheDir, profileKey);
+		if(!file.isFile() || file.length() != FILE_BYTES) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed 
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_BYTES);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != NUM_COLORS) {
+				return null;
+			}
+			buffer.position(HEADER_BYTES);
+			return new RGBLabTable(buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+		}
+	}
+	
+	/**
+	* Builds the table for a converter in parallel and writes it to the cache directory. 
+	* The table is written to a temporary file first and renamed once it is complete, so an
+	* interrupted build never leaves a partial table behind. The new file is then mapped. 
+	* 
+	* @param converter The converter to compute the L*a*b* values with
+	* @param cacheDir The directory to write the table to; it is created if needed
+	* @return The mapped table 
+	*/
+	public static RGBLabTable build(final RGBLabConverter converter, File cacheDir) throws IOException {
+		String profileKey = converter.profileKey();
+		if(!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IOException("Could not create cache directory " + cacheDir);
+		}
+		File tmp = File.createTempFile("rgblab-" + profileKey, ".tmp", cacheDir);
+		try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, NUM_COLORS);
+			
+			// Each task fills every color with one red value. The tasks only use absolute
+			// puts on their own view of the buffer, so they never touch each other's data 
+			IntStream.range(0, 256).parallel().forEach(red -> {
+				ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+				double[] lab = new double[3];
+				int first = red << 16;
+				for(int rgb = first; rgb < first + (1 << 16); rgb++) {
+					converter.computeRGBToLab(rgb, lab, 0);
+					int index = HEADER_BYTES + 12 * rgb;
+					view.putFloat(index, (float)lab[0]);
+					view.putFloat(index + 4, (float)lab[1]);
+					view.putFloat(index + 8, (float)lab[2]);
+				}
+			});
+			buffer.force();
+		} catch(IOException | RuntimeException e) {
+			tmp.delete();
+			throw e;
+		}
+		Files.move(tmp.toPath(), cacheFile(cacheDir, profileKey).toPath(), 
+			StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return load(cacheDir, profileKey);
+	}
+}
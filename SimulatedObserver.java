@@ -0,0 +1,79 @@
+/**
+* A made-up test subject for trying out threshold procedures before running real 
+* ones. The chance of a correct response to a stimulus follows a psychometric function:
+* guessRate + (1 - guessRate - lapseRate) * F(slope * (x - threshold)), where F is a
+* logistic or cumulative normal curve and x - threshold is measured in the direction
+* of increasing intensity. So the subject guesses when the stimulus is far too faint, 
+* still misses now and then (lapses) when it is easy, and is halfway between the two
+* at the threshold. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.SplittableRandom;
+
+public class SimulatedObserver {
+	
+	public enum Shape {
+		LOGISTIC, NORMAL
+	}
+	
+	public final Shape shape;
+	public final double threshold;
+	public final double slope;
+	public final double guessRate;
+	public final double lapseRate;
+	private final double intensityDirection;
+	
+	/**
+	* Constructor for a SimulatedObserver 
+	* 
+	* @param shape The shape of the psychometric function 
+	* @param threshold The stimulus value halfway between guessing and the best the subject can do 
+	* @param slope How quickly responses improve with intensity, per unit of value 
+	* @param guessRate The chance of a correct response when the stimulus cannot be seen 
+	* @param lapseRate The chance of an incorrect response when the stimulus is easy to see 
+	* @param shouldIncrease true if the stimulus becomes less intense as its value increases numerically, false otherwise 
+	*/
+	public SimulatedObserver(Shape shape, double threshold, double slope, double guessRate, double lapseRate, boolean shouldIncrease) {
+		if(!(slope > 0) || guessRate < 0 || lapseRate < 0 || guessRate + lapseRate >= 1) {
+			throw new IllegalArgumentException("Need slope > 0 and guessRate + lapseRate < 1");
+		}
+		this.shape = shape;
+		this.threshold = threshold;
+		this.slope = slope;
+		this.guessRate = guessRate;
+		this.lapseRate = lapseRate;
+		this.intensityDirection = shouldIncrease ? -1 : 1;
+	}
+	
+	/**
+	* @param value The stimulus value 
+	* @return The chance of a correct response to it 
+	*/
+	public double pCorrect(double value) {
+		double z = slope * intensityDirection * (value - threshold);
+		double f = shape == Shape.LOGISTIC ? 1 / (1 + Math.exp(-z)) : normalCDF(z);
+		return guessRate + (1 - guessRate - lapseRate) * f;
+	}
+	
+	/**
+	* Responds to a stimulus 
+	* 
+	* @param value The stimulus value 
+	* @param random The source of random numbers for this session 
+	* @return true for a correct response, false otherwise 
+	*/
+	public boolean respond(double value, SplittableRandom random) {
+		return random.nextDouble() < pCorrect(value);
+	}
+	
+	// Cumulative standard normal distribution, from the erf approximation 
+	// 7.1.26 in Abramowitz and Stegun (error below 1.5e-7) 
+	private static double normalCDF(double z) {
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911*x);
+		double erf = 1 - t*(0.254829592 + t*(-0.284496736 + t*(1.421413741 + t*(-1.453152027 + t*1.061405429)))) * Math.exp(-x*x);
+		return z >= 0 ? 0.5*(1 + erf) : 0.5*(1 - erf);
+	}
+}
@@ -14,18 +14,26 @@
 * @author Caroline Danzi
 * @version 2017-05-07 
 */
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Iterator;
+import java.io.PrintStream;
 
-public class StaircaseManager {
+public class StaircaseManager implements ThresholdEstimator {
 	
-	private double curVal;
-	private double stepSize;
-	private double correctDirection;
-	private final int NUM_NOS_TO_STOP = 3;
+	private final double startValue;
+	private final double stepSize;
+	private final double correctDirection;
+	private final int NUM_NOS_TO_STOP;
 	private boolean thresholdReached;
-	HashMap<Double, Trials> intensityTrials;
+	
+	// The current value is startValue + level * stepSize, so the same level always
+	// gives exactly the same value however the staircase got there 
+	private int level;
+	// The responses at each level, at index level - firstLevel 
+	private int[] yes;
+	private int[] total;
+	private int firstLevel;
+	// The least intense level with at least 50% 'yes' responses so far 
+	private boolean hasThreshold;
+	private int thresholdLevel;
 	
 	/**
 	* Constructor - requires a starting value, a step size, and an indication of whether 
@@ -42,11 +50,31 @@ public class StaircaseManager {
 	* @param correctDirection true if a correct response indicates the stimulus should increase numerically, false otherwise 
 	*/
 	public StaircaseManager(double startValue, double stepSize, boolean shouldIncrease) {
-		this.curVal = startValue;
+		this(startValue, stepSize, shouldIncrease, 3);
+	}
+	
+	/**
+	* Constructor that also sets the stop condition: the trials stop when the test subject 
+	* has not responded at a single intensity this many times. The other constructor uses 3. 
+	* 
+	* @param startValue The value at which to start the staircase 
+	* @param stepSize The size of each step 
+	* @param shouldIncrease true if a correct response indicates the stimulus should increase numerically, false otherwise 
+	* @param nosToStop The number of 'no' responses at one intensity that ends the staircase 
+	*/
+	public StaircaseManager(double startValue, double stepSize, boolean shouldIncrease, int nosToStop) {
+		if(nosToStop < 1) {
+			throw new IllegalArgumentException("Need at least one 'no' to stop");
+		}
+		this.NUM_NOS_TO_STOP = nosToStop;
+		this.startValue = startValue;
 		this.stepSize = stepSize;
 		this.correctDirection = shouldIncrease ? 1 : -1;
 		this.thresholdReached = false;
-		intensityTrials = new HashMap<Double, Trials>();
+		this.level = 0;
+		this.yes = new int[16];
+		this.total = new int[16];
+		this.firstLevel = -8;
 	}
 	
 	/**
@@ -57,38 +85,40 @@ public class StaircaseManager {
 	* @return The value of the next stimulus 
 	*/
 	public double getNextVal(boolean isCorrect) {
-		Trials t = intensityTrials.get(curVal);
+		ensureLevel(level);
+		int i = level - firstLevel;
+		total[i]++;
 		if(isCorrect) {
-			if(t == null) {
-				// New intensity value 
-				intensityTrials.put(curVal, new Trials(1, 1));
-			} else {
-				// Update the number of trials 
-				t = new Trials(t.yes + 1, t.total + 1);
-				intensityTrials.put(curVal, t);
-			}
-			// Add a step in the correct direction to get the next value 
-			curVal += correctDirection * stepSize;
-		} else {
-			// Each time you update the 'no's', check to see if you have reached
-			// three - if you have, you have reached the stop condition 
-			if(t == null) {
-				// New intensity value 
-				intensityTrials.put(curVal, new Trials(0, 1));
-			} else {
-				// Update the number of trials
-				t = new Trials(t.yes, t.total + 1);
-				intensityTrials.put(curVal, t);
-				// If the number of no's is equal to or greater than the number of no's 
-				// required for our stop condition, then we have reached the threshold 
-				if(t.total - t.yes >= NUM_NOS_TO_STOP) {
-					thresholdReached = true;
-				}
-			}
-			// Subtract a step in the correct direction to get the next value 
-			curVal -= correctDirection * stepSize;
+			yes[i]++;
+		} else if(total[i] - yes[i] >= NUM_NOS_TO_STOP) {
+			// If the number of no's is equal to or greater than the number of no's 
+			// required for our stop condition, then we have reached the threshold 
+			thresholdReached = true;
 		}
-		return curVal;
+		updateThreshold(level);
+		
+		// Take a step in the correct direction after a correct response and 
+		// back the other way after an incorrect one 
+		level = nextLevel(isCorrect);
+		return valueOf(level);
+	}
+	
+	/**
+	* @return The value of the stimulus currently being shown 
+	*/
+	public double getCurrentVal() {
+		return valueOf(level);
+	}
+	
+	/**
+	* Gets the value that getNextVal would return for the given response, without 
+	* recording anything. Used to prepare the next stimulus before the response comes in. 
+	* 
+	* @param isCorrect true for the value after a correct response, false for the value after an incorrect one 
+	* @return The value of the next stimulus for that response 
+	*/
+	public double peekNextVal(boolean isCorrect) {
+		return valueOf(nextLevel(isCorrect));
 	}
 	
 	/**
@@ -109,35 +139,110 @@ public class StaircaseManager {
 	* this staircase procedure has not yet been reached, an exception will be thrown
 	* since a threshold is unable to be determined from the given data. The threshold
 	* is the least intense stimulus at which the test subject responded in at least 50% of the trials. 
+	* The threshold is kept up to date as responses come in, so this does not need to 
+	* look through the trials. 
 	* 
 	* @return the threshold, if one has been reached 
 	*/
 	public double getThreshold() throws Exception {
 		if(thresholdReached) {
-			// Help from http://stackoverflow.com/questions/1066589/iterate-through-a-hashmap
-			// Based on the direction of increasing intensity, an increase in intensity may in some cases
-			// mean increasing values and in some cases decreasing values 
-			double threshold = correctDirection < 0 ? Double.MAX_VALUE : Double.MIN_VALUE;
-			for (Map.Entry<Double, Trials> entry : intensityTrials.entrySet()) {
-				double intensity = entry.getKey();
-				System.out.println(intensity+ " " + entry.getValue());
-				// If the current intensity is less intense than the current threshold, see if the response 
-				// rate is greater than or equal to 50% - if it is, then it is the new threshold 
-				// Note that if the direction of increasing intensity is 1, this means that the threshold will be 
-				// the LARGEST intensity, whereas if the direction of increase is -1, the threshold will be
-				// the SMALLEST intensity 
-				if((correctDirection == -1 && intensity < threshold) || (correctDirection == 1 && intensity > threshold)) {
-					Trials t = entry.getValue();
-					double percentCorrect = (double)t.yes / t.total;
-					if(percentCorrect >= .5) {
-						threshold = intensity;
-					}
-				}
+			if(hasThreshold) {
+				return valueOf(thresholdLevel);
 			}
-			return threshold;
+			// No intensity had enough 'yes' responses 
+			return correctDirection < 0 ? Double.MAX_VALUE : Double.MIN_VALUE;
 		} else {
 			throw new Exception("Tried to get threshold before threshold was reached");
 		}
 	}
 	
+	/**
+	* Gets the responses recorded at a stimulus value 
+	* 
+	* @param value The stimulus value 
+	* @return The number of 'yes' responses and trials at that value, or null if it has not been shown 
+	*/
+	public Trials getTrials(double value) {
+		long l = Math.round((value - startValue) / stepSize);
+		if(l < firstLevel || l >= firstLevel + total.length || total[(int)(l - firstLevel)] == 0) {
+			return null;
+		}
+		int i = (int)(l - firstLevel);
+		return new Trials(yes[i], total[i]);
+	}
+	
+	/**
+	* Prints the responses at every stimulus value that has been shown, one value per line 
+	* 
+	* @param out Where to print 
+	*/
+	public void printTrials(PrintStream out) {
+		for(int i = 0; i < total.length; i++) {
+			if(total[i] > 0) {
+				out.println(valueOf(i + firstLevel) + " " + yes[i] + " yes out of " + total[i] + " trials");
+			}
+		}
+	}
+	
+	private double valueOf(int l) {
+		return startValue + l * stepSize;
+	}
+	
+	private int nextLevel(boolean isCorrect) {
+		return isCorrect ? level + (int)correctDirection : level - (int)correctDirection;
+	}
+	
+	// Only the level that was just answered has changed, so it either becomes the new 
+	// threshold, or, if it was the threshold and dropped below 50%, the rest are checked again
+	private void updateThreshold(int l) {
+		if(meetsThreshold(l)) {
+			if(!hasThreshold || moreIntense(thresholdLevel, l)) {
+				hasThreshold = true;
+				thresholdLevel = l;
+			}
+		} else if(hasThreshold && thresholdLevel == l) {
+			hasThreshold = false;
+			for(int i = 0; i < total.length; i++) {
+				int other = i + firstLevel;
+				if(meetsThreshold(other) && (!hasThreshold || moreIntense(thresholdLevel, other))) {
+					hasThreshold = true;
+					thresholdLevel = other;
+				}
+			}
+		}
+	}
+	
+	private boolean meetsThreshold(int l) {
+		int i = l - firstLevel;
+		return total[i] > 0 && 2 * yes[i] >= total[i];
+	}
+	
+	// Note that if the direction of increasing intensity is 1, the least intense value is 
+	// the LARGEST value, whereas if the direction of increase is -1, it is the SMALLEST value 
+	private boolean moreIntense(int a, int b) {
+		return correctDirection * valueOf(a) < correctDirection * valueOf(b);
+	}
+	
+	// Grows the response counts so that they cover level l 
+	private void ensureLevel(int l) {
+		int i = l - firstLevel;
+		if(i >= 0 && i < total.length) {
+			return;
+		}
+		// Double the arrays, keeping the old levels in the middle, until l fits 
+		int length = total.length;
+		int shift;
+		do {
+			length *= 2;
+			shift = (length - total.length) / 2;
+		} while(l < firstLevel - shift || l >= firstLevel - shift + length);
+		int[] newYes = new int[length];
+		int[] newTotal = new int[length];
+		System.arraycopy(yes, 0, newYes, shift, total.length);
+		System.arraycopy(total, 0, newTotal, shift, total.length);
+		yes = newYes;
+		total = newTotal;
+		firstLevel -= shift;
+	}
+	
 }
\ No newline at end of file
@@ -1,3 +1,4 @@
+import java.io.File;
 import java.util.Scanner;
 public class StaircaseManagerTester {
 	public static void main(String[] args) throws Exception{
@@ -13,21 +14,38 @@ public class StaircaseManagerTester {
 		boolean increase = direction == 1 ? true : false;
 		StaircaseManager s = new StaircaseManager(start, step, increase);
 		
+		// With a journal file, every response is saved, and the responses already in 
+		// it (from a session that was cut short) are replayed first 
+		TrialJournal journal = null;
+		if(args.length > 0) {
+			File file = new File(args[0]);
+			if(file.exists()) {
+				System.out.println("Replayed " + TrialJournal.replay(file, 0, s) + " trials; current value: " + s.getCurrentVal());
+			}
+			journal = TrialJournal.open(file);
+		}
+		
 		System.out.println("Enter 't' if the test subject responded correctly; 'f' if they responded incorrectly, and 'q' to quit");
 		String test;
 		
 		while(!s.thresholdReached()) {
 			test = in.next();
-			if(test.equalsIgnoreCase("t")) {
-				System.out.println("Next value: " + s.getNextVal(true));
-			} else if(test.equalsIgnoreCase("f")) {
-				System.out.println("Next value: " + s.getNextVal(false));
+			if(test.equalsIgnoreCase("t") || test.equalsIgnoreCase("f")) {
+				boolean isCorrect = test.equalsIgnoreCase("t");
+				if(journal != null) {
+					journal.append(0, s.getCurrentVal(), isCorrect);
+				}
+				System.out.println("Next value: " + s.getNextVal(isCorrect));
 			} else if(test.equalsIgnoreCase("q")) {
 				System.exit(0);
 			} else if(test.equalsIgnoreCase("break")) {
 				break;
 			}
 		}
+		if(journal != null) {
+			journal.close();
+		}
+		s.printTrials(System.out);
 		System.out.println("Threshold: " + s.getThreshold());
 	}
 }
\ No newline at end of file
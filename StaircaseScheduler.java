@@ -0,0 +1,254 @@
+/**
+* Runs one staircase for each of several hue directions around a center color, with
+* the trials of all of them mixed together, to find the points of a color discrimination
+* ellipse in one session instead of one direction after another. Each trial, the 
+* scheduler picks which staircase to use next, either in turn or at random (from a 
+* seed, so a session can be repeated). A staircase stops being picked once its 
+* threshold has been reached, and the session is done when all of them have. 
+* 
+* The scheduler can be driven from the UI thread while a background thread prepares
+* stimuli. Each staircase is locked on its own, so reading one staircase's next values 
+* never waits on a response to another, and the list of staircases still running is an
+* array that is swapped out whole when one finishes, so picking the next one takes no lock. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class StaircaseScheduler {
+	
+	public enum Order {
+		ROUND_ROBIN, RANDOM
+	}
+	
+	private final double[] hueAngles;
+	private final ThresholdEstimator[] staircases;
+	private final Order order;
+	private final long seed;
+	// The staircases that have not reached their threshold, in order 
+	private final AtomicReference<int[]> active;
+	private final AtomicInteger cursor = new AtomicInteger();
+	private final AtomicLong picks = new AtomicLong();
+	
+	/**
+	* Constructor for a StaircaseScheduler. Every staircase starts at the same value 
+	* and uses the same step size. 
+	* 
+	* @param hueAngles The direction of each staircase in the a*b* plane, in radians 
+	* @param startValue The value at which to start each staircase 
+	* @param stepSize The size of each step of the staircases 
+	* @param shouldIncrease true if a correct response indicates the stimulus should increase numerically, false otherwise 
+	* @param order Whether to pick the staircases in turn or at random 
+	* @param seed The seed for picking staircases at random 
+	*/
+	public StaircaseScheduler(double[] hueAngles, double startValue, double stepSize, boolean shouldIncrease, Order order, long seed) {
+		this(hueAngles, staircases(hueAngles.length, startValue, stepSize, shouldIncrease), order, seed);
+	}
+	
+	/**
+	* Constructor for a StaircaseScheduler that runs the given threshold procedures, 
+	* such as QuestEstimators. The scheduler takes them over: they should not be 
+	* used directly afterwards. 
+	* 
+	* @param hueAngles The direction of each procedure in the a*b* plane, in radians 
+	* @param estimators The threshold procedure for each direction 
+	* @param order Whether to pick the procedures in turn or at random 
+	* @param seed The seed for picking procedures at random 
+	*/
+	public StaircaseScheduler(double[] hueAngles, ThresholdEstimator[] estimators, Order order, long seed) {
+		if(hueAngles.length == 0 || estimators.length != hueAngles.length) {
+			throw new IllegalArgumentException("Need one procedure for each of at least one direction");
+		}
+		this.hueAngles = hueAngles.clone();
+		this.staircases = estimators.clone();
+		int[] all = new int[hueAngles.length];
+		for(int k = 0; k < all.length; k++) {
+			all[k] = k;
+		}
+		this.active = new AtomicReference<int[]>(all);
+		this.order = order;
+		this.seed = seed;
+	}
+	
+	private static ThresholdEstimator[] staircases(int k, double startValue, double stepSize, boolean shouldIncrease) {
+		ThresholdEstimator[] s = new ThresholdEstimator[k];
+		for(int i = 0; i < k; i++) {
+			s[i] = new StaircaseManager(startValue, stepSize, shouldIncrease);
+		}
+		return s;
+	}
+	
+	/**
+	* Gets k directions spread evenly around the a*b* plane, starting at 0 
+	* 
+	* @param k The number of directions 
+	* @return The angles of the directions, in radians 
+	*/
+	public static double[] evenDirections(int k) {
+		double[] angles = new double[k];
+		for(int i = 0; i < k; i++) {
+			angles[i] = 2*Math.PI*i/k;
+		}
+		return angles;
+	}
+	
+	/**
+	* @return The number of staircases 
+	*/
+	public int directions() {
+		return staircases.length;
+	}
+	
+	/**
+	* @param k The staircase 
+	* @return The direction of staircase k in the a*b* plane, in radians 
+	*/
+	public double hueAngle(int k) {
+		return hueAngles[k];
+	}
+	
+	/**
+	* @return true once every staircase has reached its threshold 
+	*/
+	public boolean finished() {
+		return active.get().length == 0;
+	}
+	
+	/**
+	* @return The staircases that are still running 
+	*/
+	public int[] activeDirections() {
+		return active.get().clone();
+	}
+	
+	/**
+	* Picks the staircase to use for the next trial 
+	* 
+	* @return The staircase, or -1 if every staircase has reached its threshold 
+	*/
+	public int next() {
+		int[] running = active.get();
+		if(running.length == 0) {
+			return -1;
+		}
+		if(order == Order.RANDOM) {
+			// Each pick gets its own random numbers from the seed and how many picks 
+			// came before it, so there is no shared random state between threads 
+			long pick = picks.getAndIncrement();
+			return running[new SplittableRandom(seed + pick*0x9E3779B97F4A7C15L).nextInt(running.length)];
+		}
+		return running[Math.floorMod(cursor.getAndIncrement(), running.length)];
+	}
+	
+	/**
+	* @param k The staircase 
+	* @return The value of the stimulus staircase k is currently at 
+	*/
+	public double currentVal(int k) {
+		ThresholdEstimator s = staircases[k];
+		synchronized(s) {
+			return s.getCurrentVal();
+		}
+	}
+	
+	/**
+	* Gets the value staircase k would move to for the given response, without recording 
+	* anything. Can be called from the thread preparing stimuli. 
+	* 
+	* @param k The staircase 
+	* @param isCorrect true for the value after a correct response, false for the value after an incorrect one 
+	* @return The value of the next stimulus of staircase k for that response 
+	*/
+	public double peekNextVal(int k, boolean isCorrect) {
+		ThresholdEstimator s = staircases[k];
+		synchronized(s) {
+			return s.peekNextVal(isCorrect);
+		}
+	}
+	
+	/**
+	* Records the response to a stimulus from staircase k. If this makes the staircase
+	* reach its threshold, it will not be picked again. 
+	* 
+	* @param k The staircase 
+	* @param isCorrect true if the user correctly responded to the stimulus, false otherwise 
+	* @return The next value of staircase k 
+	*/
+	public double respond(int k, boolean isCorrect) {
+		ThresholdEstimator s = staircases[k];
+		double next;
+		boolean reached;
+		synchronized(s) {
+			next = s.getNextVal(isCorrect);
+			reached = s.thresholdReached();
+		}
+		if(reached) {
+			retire(k);
+		}
+		return next;
+	}
+	
+	/**
+	* @param k The staircase 
+	* @return true if staircase k has reached its threshold 
+	*/
+	public boolean thresholdReached(int k) {
+		ThresholdEstimator s = staircases[k];
+		synchronized(s) {
+			return s.thresholdReached();
+		}
+	}
+	
+	/**
+	* Gets the threshold of staircase k, if it has been reached 
+	* 
+	* @param k The staircase 
+	* @return The threshold of staircase k 
+	*/
+	public double getThreshold(int k) throws Exception {
+		ThresholdEstimator s = staircases[k];
+		synchronized(s) {
+			return s.getThreshold();
+		}
+	}
+	
+	/**
+	* Gets the thresholds of all the staircases, once the session is finished 
+	* 
+	* @return The threshold of each staircase, in the order of the directions 
+	*/
+	public double[] thresholds() throws Exception {
+		double[] t = new double[staircases.length];
+		for(int k = 0; k < t.length; k++) {
+			t[k] = getThreshold(k);
+		}
+		return t;
+	}
+	
+	// Takes staircase k out of the running list, trying again if another 
+	// thread changed the list at the same time 
+	private void retire(int k) {
+		while(true) {
+			int[] running = active.get();
+			int at = -1;
+			for(int i = 0; i < running.length; i++) {
+				if(running[i] == k) {
+					at = i;
+				}
+			}
+			if(at < 0) {
+				return;
+			}
+			int[] rest = new int[running.length - 1];
+			System.arraycopy(running, 0, rest, 0, at);
+			System.arraycopy(running, at + 1, rest, at, rest.length - at);
+			if(active.compareAndSet(running, rest)) {
+				return;
+			}
+		}
+	}
+}
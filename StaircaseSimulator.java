@@ -0,0 +1,299 @@
+/**
+* Runs many simulated sessions of a threshold procedure (a StaircaseManager or any 
+* other ThresholdEstimator) against a SimulatedObserver, to see how its settings affect 
+* the bias and spread of the thresholds it finds and how many trials it takes. 
+* 
+* The sessions are run in parallel in chunks. Each chunk has its own SplittableRandom, 
+* split from the seed up front, and its own totals and histograms, which are only 
+* added together at the end, so the chunks share nothing while they run and the same
+* seed always gives the same results however many cores there are. 
+* 
+* Usage: java StaircaseSimulator sessions seed threshold slope guessRate lapseRate startValues stepSizes nosToStop [logistic|normal] [maxTrials]
+* startValues, stepSizes and nosToStop can be lists separated by commas; every 
+* combination is simulated. Stimulus values are intensities (a correct response lowers 
+* the value). 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public class StaircaseSimulator {
+	
+	// The number of sessions in each chunk run by one worker 
+	static final int CHUNK = 4096;
+	
+	public static void main(String[] args) throws Exception {
+		if(args.length < 9 || args.length > 11) {
+			System.out.println("Usage: java StaircaseSimulator sessions seed threshold slope guessRate lapseRate startValues stepSizes nosToStop [logistic|normal] [maxTrials]");
+			System.exit(1);
+		}
+		long sessions = Long.parseLong(args[0]);
+		long seed = Long.parseLong(args[1]);
+		SimulatedObserver.Shape shape = args.length > 9 ? SimulatedObserver.Shape.valueOf(args[9].toUpperCase()) : SimulatedObserver.Shape.LOGISTIC;
+		final SimulatedObserver observer = new SimulatedObserver(shape, Double.parseDouble(args[2]), Double.parseDouble(args[3]), 
+			Double.parseDouble(args[4]), Double.parseDouble(args[5]), false);
+		int maxTrials = args.length > 10 ? Integer.parseInt(args[10]) : 1000;
+		
+		for(final double startValue : parseList(args[6])) {
+			for(final double stepSize : parseList(args[7])) {
+				for(double nos : parseList(args[8])) {
+					final int nosToStop = (int)nos;
+					long start = System.nanoTime();
+					Summary s = run(() -> new StaircaseManager(startValue, stepSize, false, nosToStop), observer, sessions, maxTrials, seed);
+					System.out.println("start " + startValue + " step " + stepSize + " nosToStop " + nosToStop + 
+						" (" + (System.nanoTime() - start)/1000000 + " ms)");
+					System.out.println(s);
+				}
+			}
+		}
+	}
+	
+	private static double[] parseList(String list) {
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			values[i] = Double.parseDouble(parts[i]);
+		}
+		return values;
+	}
+	
+	/**
+	* Runs simulated sessions. A session ends when the procedure reaches its threshold, 
+	* or after maxTrials trials, in which case it counts as unfinished. 
+	* 
+	* @param procedure Makes a new threshold procedure for each session 
+	* @param observer The simulated test subject 
+	* @param sessions The number of sessions to run 
+	* @param maxTrials The most trials a session can take 
+	* @param seed The seed for all the sessions 
+	* @return The results of all the sessions 
+	*/
+	public static Summary run(final Supplier<? extends ThresholdEstimator> procedure, final SimulatedObserver observer, 
+			long sessions, final int maxTrials, long seed) {
+		// Split all the randoms up front so the results do not depend on the threads 
+		final int chunks = (int)((sessions + CHUNK - 1) / CHUNK);
+		final SplittableRandom root = new SplittableRandom(seed);
+		final List<SplittableRandom> randoms = new ArrayList<SplittableRandom>(chunks);
+		for(int c = 0; c < chunks; c++) {
+			randoms.add(root.split());
+		}
+		final double errorRange = 20 / observer.slope;
+		final long total = sessions;
+		final Summary[] parts = new Summary[chunks];
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			Summary part = new Summary(errorRange, maxTrials);
+			SplittableRandom random = randoms.get(c);
+			long end = Math.min(total, (long)(c + 1) * CHUNK);
+			for(long k = (long)c * CHUNK; k < end; k++) {
+				part.add(runSession(procedure.get(), observer, maxTrials, random), observer.threshold);
+			}
+			parts[c] = part;
+		});
+		Summary summary = new Summary(errorRange, maxTrials);
+		for(Summary part : parts) {
+			summary.merge(part);
+		}
+		return summary;
+	}
+	
+	// Runs one session; returns the threshold found (NaN if the session did not 
+	// finish) and the number of trials it took 
+	private static double[] runSession(ThresholdEstimator procedure, SimulatedObserver observer, int maxTrials, SplittableRandom random) {
+		int trials = 0;
+		while(!procedure.thresholdReached() && trials < maxTrials) {
+			procedure.getNextVal(observer.respond(procedure.getCurrentVal(), random));
+			trials++;
+		}
+		double threshold = Double.NaN;
+		if(procedure.thresholdReached()) {
+			try {
+				threshold = procedure.getThreshold();
+			} catch(Exception e) {
+				// Cannot happen once the threshold has been reached 
+			}
+		}
+		return new double[] {threshold, trials};
+	}
+	
+	/**
+	* Counts of values in equal bins from min to max, plus counts of the values below and above 
+	*/
+	public static class Histogram {
+		public final double min;
+		public final double max;
+		public final long[] counts;
+		public long below;
+		public long above;
+		
+		/**
+		* Constructor for a Histogram 
+		* 
+		* @param min The lower edge of the first bin 
+		* @param max The upper edge of the last bin 
+		* @param bins The number of bins 
+		*/
+		public Histogram(double min, double max, int bins) {
+			this.min = min;
+			this.max = max;
+			this.counts = new long[bins];
+		}
+		
+		/**
+		* @param value The value to count 
+		*/
+		public void add(double value) {
+			if(value < min) {
+				below++;
+			} else if(value >= max) {
+				above++;
+			} else {
+				counts[Math.min(counts.length - 1, (int)((value - min) / (max - min) * counts.length))]++;
+			}
+		}
+		
+		/**
+		* Adds the counts of another histogram with the same bins to this one 
+		* 
+		* @param other The other histogram 
+		*/
+		public void merge(Histogram other) {
+			for(int i = 0; i < counts.length; i++) {
+				counts[i] += other.counts[i];
+			}
+			below += other.below;
+			above += other.above;
+		}
+		
+		/**
+		* @return The number of values counted 
+		*/
+		public long count() {
+			long n = below + above;
+			for(long c : counts) {
+				n += c;
+			}
+			return n;
+		}
+		
+		/**
+		* Gets a quantile, to the nearest bin 
+		* 
+		* @param q The quantile, from 0 to 1 
+		* @return The middle of the bin the quantile falls in, or min/max if it falls below/above the bins 
+		*/
+		public double quantile(double q) {
+			long target = (long)Math.ceil(q * count());
+			long seen = below;
+			if(seen >= target && below > 0) {
+				return min;
+			}
+			double width = (max - min) / counts.length;
+			for(int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if(seen >= target && counts[i] > 0) {
+					return min + (i + 0.5) * width;
+				}
+			}
+			return max;
+		}
+	}
+	
+	/**
+	* The results of a set of simulated sessions 
+	*/
+	public static class Summary {
+		public long sessions;
+		// Sessions that reached the maximum number of trials 
+		public long unfinished;
+		// Sessions that finished without any intensity with 50% 'yes' responses 
+		public long noThreshold;
+		private double sumError;
+		private double sumSqError;
+		private long sumTrials;
+		/** The threshold found minus the observer's threshold */
+		public final Histogram error;
+		public final Histogram trials;
+		
+		Summary(double errorRange, int maxTrials) {
+			error = new Histogram(-errorRange, errorRange, 400);
+			trials = new Histogram(0, maxTrials + 1, maxTrials + 1);
+		}
+		
+		void add(double[] session, double trueThreshold) {
+			sessions++;
+			double threshold = session[0];
+			int n = (int)session[1];
+			sumTrials += n;
+			trials.add(n);
+			if(Double.isNaN(threshold)) {
+				unfinished++;
+			} else if(threshold == Double.MAX_VALUE || threshold == Double.MIN_VALUE) {
+				noThreshold++;
+			} else {
+				double e = threshold - trueThreshold;
+				sumError += e;
+				sumSqError += e*e;
+				error.add(e);
+			}
+		}
+		
+		void merge(Summary other) {
+			sessions += other.sessions;
+			unfinished += other.unfinished;
+			noThreshold += other.noThreshold;
+			sumError += other.sumError;
+			sumSqError += other.sumSqError;
+			sumTrials += other.sumTrials;
+			error.merge(other.error);
+			trials.merge(other.trials);
+		}
+		
+		/**
+		* @return The number of sessions that found a threshold 
+		*/
+		public long estimates() {
+			return sessions - unfinished - noThreshold;
+		}
+		
+		/**
+		* @return The mean of the threshold found minus the observer's threshold 
+		*/
+		public double bias() {
+			return sumError / estimates();
+		}
+		
+		/**
+		* @return The standard deviation of the thresholds found 
+		*/
+		public double sd() {
+			double mean = bias();
+			return Math.sqrt(Math.max(0, sumSqError / estimates() - mean*mean));
+		}
+		
+		/**
+		* @return The root mean square difference between the thresholds found and the observer's threshold 
+		*/
+		public double rmse() {
+			return Math.sqrt(sumSqError / estimates());
+		}
+		
+		/**
+		* @return The mean number of trials per session 
+		*/
+		public double meanTrials() {
+			return (double)sumTrials / sessions;
+		}
+		
+		public String toString() {
+			return String.format("%d sessions (%d unfinished, %d without a threshold): bias %.4f, sd %.4f, rmse %.4f, error 5%%/50%%/95%% %.3f/%.3f/%.3f; trials mean %.2f, 50%%/95%% %.0f/%.0f", 
+				sessions, unfinished, noThreshold, bias(), sd(), rmse(), 
+				error.quantile(0.05), error.quantile(0.5), error.quantile(0.95), 
+				meanTrials(), Math.floor(trials.quantile(0.5)), Math.floor(trials.quantile(0.95)));
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/**
+* Gets the next stimulus ready before the test subject responds. After each response
+* the staircase can only move one step up or one step down, so as soon as a stimulus
+* is shown both of the possible next stimuli are prepared, at the same time, on two 
+* background threads, so the one that is needed is never waiting behind the other. 
+* When the response comes in, the one that matches is used and the other is dropped,
+* so the time between trials does not depend on how long a plate takes to make. 
+* Dropping a stimulus interrupts the thread preparing it, so a plate that is no longer
+* needed does not keep one of the two threads busy while the next pair waits behind it;
+* PlateRasterizer stops between bands when it is interrupted. 
+* 
+* If the prepared stimulus is not for the value the staircase moved to (for example
+* if the staircase was changed in between), the stimulus is made right away instead. 
+* 
+* @version 2026-10-18
+*/
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleFunction;
+
+public class StimulusPrefetcher<T> {
+	
+	private final DoubleFunction<T> prepare;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	
+	private double correctVal;
+	private double incorrectVal;
+	private Future<T> ifCorrect;
+	private Future<T> ifIncorrect;
+	
+	/**
+	* Constructor for a StimulusPrefetcher that prepares stimuli on its own two background 
+	* threads, one for each possible response. Call close() when done with it. 
+	* 
+	* @param prepare Makes the stimulus for a staircase value 
+	*/
+	public StimulusPrefetcher(DoubleFunction<T> prepare) {
+		this(prepare, Executors.newFixedThreadPool(2, r -> {
+			Thread t = new Thread(r, "StimulusPrefetcher");
+			t.setDaemon(true);
+			return t;
+		}), true);
+	}
+	
+	/**
+	* Constructor for a StimulusPrefetcher that prepares stimuli on the given executor 
+	* 
+	* @param prepare Makes the stimulus for a staircase value 
+	* @param executor Where to prepare the stimuli; it should run at least two tasks at once, or the two possible stimuli are made one after the other 
+	*/
+	public StimulusPrefetcher(DoubleFunction<T> prepare, ExecutorService executor) {
+		this(prepare, executor, false);
+	}
+	
+	private StimulusPrefetcher(DoubleFunction<T> prepare, ExecutorService executor, boolean ownsExecutor) {
+		this.prepare = prepare;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+	
+	/**
+	* Makes the stimulus for the staircase's current value and starts preparing 
+	* the two that could come after it. Use this for the first trial. 
+	* 
+	* @param staircase The staircase the stimuli follow 
+	* @return The stimulus for the current value 
+	*/
+	public T first(ThresholdEstimator staircase) {
+		T stimulus = prepare.apply(staircase.getCurrentVal());
+		prefetch(staircase);
+		return stimulus;
+	}
+	
+	/**
+	* Records the response with the staircase and returns the stimulus for the value it
+	* moves to, then starts preparing the two that could come after that one. Nothing more
+	* is prepared once the threshold has been reached. 
+	* 
+	* @param staircase The staircase the stimuli follow 
+	* @param isCorrect true if the user correctly responded to the last stimulus, false otherwise 
+	* @return The stimulus for the next value 
+	*/
+	public T respond(ThresholdEstimator staircase, boolean isCorrect) {
+		double next = staircase.getNextVal(isCorrect);
+		Future<T> chosen = isCorrect ? ifCorrect : ifIncorrect;
+		double expected = isCorrect ? correctVal : incorrectVal;
+		Future<T> dropped = isCorrect ? ifIncorrect : ifCorrect;
+		ifCorrect = null;
+		ifIncorrect = null;
+		if(dropped != null) {
+			dropped.cancel(true);
+		}
+		
+		T stimulus = null;
+		if(chosen != null) {
+			if(next == expected) {
+				stimulus = take(chosen);
+			} else {
+				chosen.cancel(true);
+			}
+		}
+		if(stimulus == null) {
+			stimulus = prepare.apply(next);
+		}
+		if(!staircase.thresholdReached()) {
+			prefetch(staircase);
+		}
+		return stimulus;
+	}
+	
+	/**
+	* Starts preparing the stimuli for both of the staircase's possible next values,
+	* dropping anything prepared before 
+	* 
+	* @param staircase The staircase the stimuli follow 
+	*/
+	public void prefetch(ThresholdEstimator staircase) {
+		cancel();
+		final double up = staircase.peekNextVal(true);
+		final double down = staircase.peekNextVal(false);
+		correctVal = up;
+		incorrectVal = down;
+		ifCorrect = executor.submit(() -> prepare.apply(up));
+		ifIncorrect = executor.submit(() -> prepare.apply(down));
+	}
+	
+	/**
+	* Drops any stimuli that are being prepared 
+	*/
+	public void cancel() {
+		if(ifCorrect != null) {
+			ifCorrect.cancel(true);
+		}
+		if(ifIncorrect != null) {
+			ifIncorrect.cancel(true);
+		}
+		ifCorrect = null;
+		ifIncorrect = null;
+	}
+	
+	/**
+	* Drops any stimuli that are being prepared and stops the background thread, 
+	* if this prefetcher made its own 
+	*/
+	public void close() {
+		cancel();
+		if(ownsExecutor) {
+			executor.shutdownNow();
+		}
+	}
+	
+	// Waits for a prepared stimulus, or returns null if it could not be made 
+	// so the caller makes it itself 
+	private T take(Future<T> future) {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			return null;
+		} catch(CancellationException e) {
+			return null;
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException("Could not prepare stimulus", cause);
+		}
+	}
+}
@@ -7,24 +7,12 @@
 */
 import java.util.Vector;
 import java.util.Scanner;
-import java.io.File;
 public class TestRGBLabConverter {
 	public static void main(String[] args) {
 		Scanner in = new Scanner(System.in);
 		try {
-			// Set the white point 
-			Vector<Double> D65 = new Vector<Double>();
-			/*D65.add(95.047);
-			D65.add(100.0);
-			D65.add(108.883);*/
-			// White point found by multiplying the RGB to XYZ matrix provided 
-			// by <1.0, 1.0, 1.0> 
-			D65.add(40.51067005);
-			D65.add(42.62172404);
-			D65.add(46.40781179);
-			
-			// Create the color converter using the matrices and model loaded from files 
-			RGBLabConverter converter = new RGBLabConverter("DisplayMeasurement" + File.separator + "dell_s2240m_matrices.csv", "DisplayMeasurement" + File.separator + "model.csv", D65);
+			// Get the shared color converter for the display; its white point comes from the matrices 
+			RGBLabConverter converter = DisplayProfiles.get(DisplayProfiles.DELL_S2240M);
 			
 			// Convert an RGB color to lab 
 			System.out.println("Converting RGB to Lab");
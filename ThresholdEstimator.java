@@ -0,0 +1,44 @@
+/**
+* A procedure that chooses the intensity of each stimulus from the responses so far 
+* and finds the test subject's threshold, such as the up/down staircase in 
+* StaircaseManager or the Bayesian estimator in QuestEstimator. 
+* 
+* @version 2026-10-18
+*/
+public interface ThresholdEstimator {
+	
+	/**
+	* Gets the next stimulus value to give to the user based on whether
+	* they responded correctly to the previous stimulus. 
+	* 
+	* @param isCorrect true if the user correctly responded to the last stimulus, false otherwise 
+	* @return The value of the next stimulus 
+	*/
+	double getNextVal(boolean isCorrect);
+	
+	/**
+	* @return The value of the stimulus currently being shown 
+	*/
+	double getCurrentVal();
+	
+	/**
+	* Gets the value that getNextVal would return for the given response, without 
+	* recording anything. 
+	* 
+	* @param isCorrect true for the value after a correct response, false for the value after an incorrect one 
+	* @return The value of the next stimulus for that response 
+	*/
+	double peekNextVal(boolean isCorrect);
+	
+	/**
+	* @return true if the threshold can be determined from the responses so far; false otherwise 
+	*/
+	boolean thresholdReached();
+	
+	/**
+	* Gets the threshold if one has been reached, or throws an exception if more trials are needed 
+	* 
+	* @return the threshold, if one has been reached 
+	*/
+	double getThreshold() throws Exception;
+}
@@ -0,0 +1,60 @@
+/**
+* How a display turns the gamma-compressed code value of a color channel (0 to 255) 
+* into linear light (0 to 1) and back. RGBLabConverter uses one of these for the 
+* compressed RGB to linear RGB step of its conversions. 
+* 
+* @version 2026-10-18
+*/
+public interface TransferFunction {
+	
+	/**
+	* Uncompresses a code value of one color channel 
+	* 
+	* @param code The gamma-compressed code value in the range [0,255]
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The linear value of the channel 
+	*/
+	double uncompress(int code, int channel);
+	
+	/**
+	* Compresses a linear value of one color channel 
+	* 
+	* @param linear The linear value of the channel in the range [0,1] 
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The gamma-compressed value of the channel in the range [0,255]; truncating it gives the code value 
+	*/
+	double compress(double linear, int channel);
+	
+	/**
+	* Uncompresses a code value that falls between two whole codes, as a video card 
+	* calibration curve can produce. By default this interpolates linearly between the 
+	* two codes around it. 
+	* 
+	* @param code The code value in the range [0,255]
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The linear value of the channel 
+	*/
+	default double uncompressFraction(double code, int channel) {
+		int below = Math.min(Math.max((int)code, 0), 254);
+		double t = Math.min(Math.max(code - below, 0), 1);
+		double from = uncompress(below, channel);
+		return from + t*(uncompress(below + 1, channel) - from);
+	}
+	
+	/**
+	* Gets the smallest linear value that compresses to the given code or higher. 
+	* These must not decrease as the code goes up. 
+	* 
+	* @param code The gamma-compressed code value in the range [0,255]; for 0, the darkest value the display shows
+	* @param channel 0 for red, 1 for green, 2 for blue 
+	* @return The linear value where the code starts 
+	*/
+	default double codeStart(int code, int channel) {
+		return uncompress(code, channel);
+	}
+	
+	/**
+	* @return Every number that affects the conversions, so that converters can tell whether they convert the same way 
+	*/
+	double[] parameters();
+}
@@ -0,0 +1,295 @@
+/**
+* An append-only record of every trial of a session, so that a crash (or quitting by 
+* mistake) does not lose the responses collected so far. Each response is written to the 
+* file as soon as it is recorded, so it survives the program dying; the file is also 
+* synced to the disk in the background every quarter second, so it survives the machine
+* dying too, without the trial loop ever waiting on the disk. 
+* 
+* On restart, replay() feeds the recorded responses back into a new StaircaseManager 
+* (or any ThresholdEstimator made with the same settings) to bring it back to where 
+* the session left off. 
+* 
+* The file is little-endian: a 16-byte header (int magic 'TJRN', int version, 8 bytes
+* unused) followed by 48-byte records: 
+*   long time (milliseconds since 1970), int staircase, int trial (within the staircase),
+*   double stimulus value, int stimulus RGB, float L*, float a*, float b*, 
+*   int response (1 for correct, 0 for incorrect), int CRC-32 of the 44 bytes before it 
+* A record cut short or damaged by a crash fails its checksum; reading stops there, 
+* and opening the journal again cuts it off before adding new records. 
+* 
+* @version 2026-10-18
+*/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class TrialJournal implements Closeable {
+	
+	// 'TJRN' 
+	private static final int MAGIC = 0x544A524E;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	static final int RECORD_BYTES = 48;
+	private static final long SYNC_INTERVAL_MS = 250;
+	
+	/**
+	* One trial read back from a journal 
+	*/
+	public static class Record {
+		public final long time;
+		public final int staircase;
+		public final int trial;
+		public final double value;
+		public final int rgb;
+		public final float l;
+		public final float a;
+		public final float b;
+		public final boolean isCorrect;
+		
+		Record(ByteBuffer buffer, int at) {
+			time = buffer.getLong(at);
+			staircase = buffer.getInt(at + 8);
+			trial = buffer.getInt(at + 12);
+			value = buffer.getDouble(at + 16);
+			rgb = buffer.getInt(at + 24);
+			l = buffer.getFloat(at + 28);
+			a = buffer.getFloat(at + 32);
+			b = buffer.getFloat(at + 36);
+			isCorrect = buffer.getInt(at + 40) != 0;
+		}
+		
+		public String toString() {
+			return staircase + " #" + trial + " " + value + (isCorrect ? " correct" : " incorrect");
+		}
+	}
+	
+	private final FileChannel channel;
+	private final ByteBuffer record;
+	private final CRC32 crc = new CRC32();
+	private final ScheduledExecutorService syncer;
+	// Trials recorded so far for each staircase 
+	private int[] trials = new int[0];
+	private volatile boolean dirty;
+	private IOException syncError;
+	
+	private TrialJournal(FileChannel channel, List<Record> existing) {
+		this.channel = channel;
+		this.record = ByteBuffer.allocateDirect(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for(Record r : existing) {
+			countTrial(r.staircase);
+		}
+		this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "TrialJournal sync");
+			t.setDaemon(true);
+			return t;
+		});
+		syncer.scheduleWithFixedDelay(this::syncInBackground, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	* Opens a journal to add trials to, making it if it does not exist. If the last 
+	* record was cut short by a crash, it is removed. 
+	* 
+	* @param file The journal file 
+	* @return The journal 
+	*/
+	public static TrialJournal open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			List<Record> existing = new ArrayList<Record>();
+			long end;
+			// A file shorter than the header is new, or was cut short while its header was 
+			// being written, so it holds no records yet 
+			if(channel.size() < HEADER_BYTES) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(0, MAGIC);
+				header.putInt(4, VERSION);
+				channel.write(header, 0);
+				channel.force(true);
+				end = HEADER_BYTES;
+			} else {
+				end = read(channel, existing);
+				channel.truncate(end);
+			}
+			channel.position(end);
+			return new TrialJournal(channel, existing);
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	* Records a trial 
+	* 
+	* @param staircase Which staircase the trial was from (0 if there is only one) 
+	* @param value The stimulus value shown 
+	* @param rgb The test color shown 
+	* @param l The L* of the test color 
+	* @param a The a* of the test color 
+	* @param b The b* of the test color 
+	* @param isCorrect true if the user responded correctly, false otherwise 
+	*/
+	public synchronized void append(int staircase, double value, int rgb, double l, double a, double b, boolean isCorrect) throws IOException {
+		if(syncError != null) {
+			IOException e = syncError;
+			syncError = null;
+			throw e;
+		}
+		record.clear();
+		record.putLong(0, System.currentTimeMillis());
+		record.putInt(8, staircase);
+		record.putInt(12, countTrial(staircase));
+		record.putDouble(16, value);
+		record.putInt(24, rgb);
+		record.putFloat(28, (float)l);
+		record.putFloat(32, (float)a);
+		record.putFloat(36, (float)b);
+		record.putInt(40, isCorrect ? 1 : 0);
+		crc.reset();
+		record.limit(RECORD_BYTES - 4);
+		crc.update(record);
+		record.limit(RECORD_BYTES);
+		record.putInt(RECORD_BYTES - 4, (int)crc.getValue());
+		record.position(0);
+		while(record.hasRemaining()) {
+			channel.write(record);
+		}
+		dirty = true;
+	}
+	
+	/**
+	* Records a trial with no stimulus color 
+	* 
+	* @param staircase Which staircase the trial was from (0 if there is only one) 
+	* @param value The stimulus value shown 
+	* @param isCorrect true if the user responded correctly, false otherwise 
+	*/
+	public void append(int staircase, double value, boolean isCorrect) throws IOException {
+		append(staircase, value, 0, Double.NaN, Double.NaN, Double.NaN, isCorrect);
+	}
+	
+	/**
+	* Syncs everything recorded so far to the disk now 
+	*/
+	public void sync() throws IOException {
+		dirty = false;
+		channel.force(false);
+	}
+	
+	/**
+	* Syncs and closes the journal 
+	*/
+	public synchronized void close() throws IOException {
+		syncer.shutdownNow();
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private void syncInBackground() {
+		if(dirty) {
+			try {
+				sync();
+			} catch(IOException e) {
+				// Handed to the next append, since nobody is waiting on this thread 
+				synchronized(this) {
+					syncError = e;
+				}
+			}
+		}
+	}
+	
+	private int countTrial(int staircase) {
+		if(staircase >= trials.length) {
+			trials = Arrays.copyOf(trials, Math.max(staircase + 1, 2*trials.length));
+		}
+		return trials[staircase]++;
+	}
+	
+	/**
+	* Reads every complete record of a journal. A file shorter than the header, such as 
+	* one that was made but never written to, is an empty journal, as it is for open(). 
+	* 
+	* @param file The journal file 
+	* @return The records, in the order they were written 
+	*/
+	public static List<Record> read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			List<Record> records = new ArrayList<Record>();
+			if(channel.size() >= HEADER_BYTES) {
+				read(channel, records);
+			}
+			return records;
+		}
+	}
+	
+	// Reads the records into the list and returns where the good records end 
+	private static long read(FileChannel channel, List<Record> records) throws IOException {
+		long size = channel.size();
+		ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(size, Integer.MAX_VALUE)).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, buffer.position()) < 0) {
+				break;
+			}
+		}
+		if(size < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a trial journal");
+		}
+		if(buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported trial journal version " + buffer.getInt(4));
+		}
+		CRC32 crc = new CRC32();
+		int at = HEADER_BYTES;
+		while(at + RECORD_BYTES <= size) {
+			crc.reset();
+			crc.update(buffer.array(), at, RECORD_BYTES - 4);
+			if((int)crc.getValue() != buffer.getInt(at + RECORD_BYTES - 4)) {
+				break;
+			}
+			records.add(new Record(buffer, at));
+			at += RECORD_BYTES;
+		}
+		return at;
+	}
+	
+	/**
+	* Brings a threshold procedure back to where it was by giving it the recorded 
+	* responses of one staircase again, in order. The procedure must be new and made with
+	* the same settings as the one that was recorded. 
+	* 
+	* @param file The journal file 
+	* @param staircase Which staircase to replay 
+	* @param procedure The new procedure 
+	* @return The number of trials replayed 
+	*/
+	public static int replay(File file, int staircase, ThresholdEstimator procedure) throws IOException {
+		int n = 0;
+		for(Record r : read(file)) {
+			if(r.staircase != staircase) {
+				continue;
+			}
+			if(r.value != procedure.getCurrentVal()) {
+				throw new IllegalStateException("Trial " + r.trial + " of staircase " + staircase + " was at " + r.value + 
+					" but the procedure is at " + procedure.getCurrentVal() + "; was it made with the same settings?");
+			}
+			procedure.getNextVal(r.isCorrect);
+			n++;
+		}
+		return n;
+	}
+}
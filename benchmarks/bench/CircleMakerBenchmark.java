@@ -0,0 +1,69 @@
+/**
+* Benchmarks for CircleMaker.makeCircles, CircleMaker.makeLayout and 
+* PoissonDiskPacker.pack with several combinations of circle sizes and fill ratios. Smaller circles and higher ratios mean many more circles per layout. 
+* Every setting's ratio can be reached, since a layout that cannot reach its ratio only
+* stops once the larger circle is full, and that would measure the stopping rule instead. 
+* 
+* @version 2026-10-18
+*/
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CircleMakerBenchmark {
+	
+	// Each setting is minR:maxR:targetRatio; the first is the default used by the sketches 
+	@Param({"0.0125:0.05:0.7", "0.00625:0.025:0.7", "0.003125:0.0125:0.6"})
+	public String setting;
+	
+	private double minR;
+	private double maxR;
+	private double targetRatio;
+	private Object maker;
+	private Object packer;
+	private long seed;
+	
+	@Setup
+	public void setup() throws Throwable {
+		String[] parts = setting.split(":");
+		minR = Double.parseDouble(parts[0]);
+		maxR = Double.parseDouble(parts[1]);
+		targetRatio = Double.parseDouble(parts[2]);
+		maker = (Object)Project.NEW_CIRCLE_MAKER.invokeExact(minR, maxR, targetRatio);
+		packer = (Object)Project.NEW_PACKER.invokeExact(minR, maxR, targetRatio);
+		
+		// Make sure each benchmark is timing real layouts and not empty ones 
+		Object circles = (Object)Project.MAKE_CIRCLES.invokeExact(minR, maxR, targetRatio);
+		Object layout = (Object)Project.MAKE_LAYOUT.invokeExact(maker, -1L);
+		Object result = (Object)Project.PACK.invokeExact(packer, -1L);
+		Object packed = (Object)Project.PACKED_LAYOUT.invokeExact(result);
+		if(((List<?>)circles).isEmpty() || (int)Project.LAYOUT_SIZE.invokeExact(layout) == 0
+				|| (int)Project.LAYOUT_SIZE.invokeExact(packed) == 0) {
+			throw new IllegalStateException("Setting " + setting + " makes empty layouts");
+		}
+	}
+	
+	@Benchmark
+	public Object makeCircles() throws Throwable {
+		return (Object)Project.MAKE_CIRCLES.invokeExact(minR, maxR, targetRatio);
+	}
+	
+	@Benchmark
+	public Object makeLayout() throws Throwable {
+		return (Object)Project.MAKE_LAYOUT.invokeExact(maker, seed++);
+	}
+	
+	@Benchmark
+	public Object poissonDiskPack() throws Throwable {
+		return (Object)Project.PACK.invokeExact(packer, seed++);
+	}
+}
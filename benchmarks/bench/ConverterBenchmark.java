@@ -0,0 +1,105 @@
+/**
+* Benchmarks for RGBLabConverter: single conversions through the Vector methods and
+* the primitive methods, and batch conversions of a whole palette at a time, in both
+* directions. Lab to RGB is also measured through a LabToRGBGrid. 
+* 
+* @version 2026-10-18
+*/
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConverterBenchmark {
+	
+	static final int BATCH_SIZE = 4096;
+	
+	@Param({"DisplayMeasurement"})
+	public String profileDir;
+	
+	private Object converter;
+	private Object gridConverter;
+	private int[] rgb;
+	private double[] lab;
+	private double[] labOut;
+	private int[] rgbOut;
+	private Vector<Double> labVector;
+	private int next;
+	
+	@Setup
+	public void setup() throws Throwable {
+		converter = Project.newConverter(profileDir);
+		gridConverter = Project.newConverter(profileDir);
+		Object grid = (Object)Project.USE_LAB_TO_RGB_GRID.invokeExact(gridConverter, 33);
+		
+		// A fixed palette of random colors, and the same colors in L*a*b*
+		SplittableRandom random = new SplittableRandom(42);
+		rgb = new int[BATCH_SIZE];
+		for(int i = 0; i < BATCH_SIZE; i++) {
+			rgb[i] = random.nextInt(1 << 24);
+		}
+		lab = new double[3 * BATCH_SIZE];
+		Project.CONVERT_RGB_TO_LAB.invokeExact(converter, rgb, lab);
+		labOut = new double[3 * BATCH_SIZE];
+		rgbOut = new int[BATCH_SIZE];
+		labVector = new Vector<Double>();
+		labVector.add(lab[0]);
+		labVector.add(lab[1]);
+		labVector.add(lab[2]);
+	}
+	
+	@Benchmark
+	public Object rgbToLabVector() throws Throwable {
+		next = (next + 1) & (BATCH_SIZE - 1);
+		return (Object)Project.RGB_TO_LAB_VECTOR.invokeExact(converter, rgb[next]);
+	}
+	
+	@Benchmark
+	public double[] rgbToLabSingle() throws Throwable {
+		next = (next + 1) & (BATCH_SIZE - 1);
+		Project.RGB_TO_LAB.invokeExact(converter, rgb[next], labOut, 0);
+		return labOut;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public double[] rgbToLabBatch() throws Throwable {
+		Project.CONVERT_RGB_TO_LAB.invokeExact(converter, rgb, labOut);
+		return labOut;
+	}
+	
+	@Benchmark
+	public int labToRGBVector() throws Throwable {
+		return (int)Project.LAB_TO_RGB_VECTOR.invokeExact(converter, (Object)labVector);
+	}
+	
+	@Benchmark
+	public int labToRGBSingle() throws Throwable {
+		next = (next + 1) & (BATCH_SIZE - 1);
+		return (int)Project.LAB_TO_RGB.invokeExact(converter, lab[3*next], lab[3*next+1], lab[3*next+2]);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] labToRGBBatch() throws Throwable {
+		Project.CONVERT_LAB_TO_RGB.invokeExact(converter, lab, rgbOut);
+		return rgbOut;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] labToRGBGridBatch() throws Throwable {
+		Project.CONVERT_LAB_TO_RGB.invokeExact(gridConverter, lab, rgbOut);
+		return rgbOut;
+	}
+}
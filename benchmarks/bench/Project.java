@@ -0,0 +1,142 @@
+/**
+* Gives the benchmarks access to the classes of the experiment. JMH will not generate
+* benchmarks in the default package, and classes in a named package cannot refer to
+* classes in the default package, so the benchmarks reach them through method handles.
+* The handles are static final, so the JIT compiler treats each call through them the
+* same as a direct call and the measurements are not skewed. 
+* 
+* @version 2026-10-18
+*/
+package bench;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Vector;
+
+final class Project {
+	
+	// RGBLabConverter 
+	static final MethodHandle NEW_CONVERTER;
+	static final MethodHandle RGB_TO_LAB_VECTOR;
+	static final MethodHandle RGB_TO_LAB;
+	static final MethodHandle CONVERT_RGB_TO_LAB;
+	static final MethodHandle LAB_TO_RGB_VECTOR;
+	static final MethodHandle LAB_TO_RGB;
+	static final MethodHandle CONVERT_LAB_TO_RGB;
+	static final MethodHandle USE_LAB_TO_RGB_GRID;
+	
+	// CircleMaker 
+	static final MethodHandle MAKE_CIRCLES;
+	static final MethodHandle NEW_CIRCLE_MAKER;
+	static final MethodHandle MAKE_LAYOUT;
+	
+	// CircleLayout 
+	static final MethodHandle LAYOUT_SIZE;
+	
+	// PoissonDiskPacker 
+	static final MethodHandle NEW_PACKER;
+	static final MethodHandle PACK;
+	static final MethodHandle PACKED_LAYOUT;
+	
+	// StaircaseManager 
+	static final MethodHandle NEW_STAIRCASE;
+	static final MethodHandle GET_NEXT_VAL;
+	static final MethodHandle THRESHOLD_REACHED;
+	static final MethodHandle GET_THRESHOLD;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> converter = Class.forName("RGBLabConverter");
+			NEW_CONVERTER = generic(lookup.findConstructor(converter, 
+				MethodType.methodType(void.class, String.class, String.class, Vector.class)));
+			RGB_TO_LAB_VECTOR = generic(lookup.findVirtual(converter, "RGBToLab", 
+				MethodType.methodType(Vector.class, int.class)));
+			RGB_TO_LAB = generic(lookup.findVirtual(converter, "RGBToLab", 
+				MethodType.methodType(void.class, int.class, double[].class, int.class)));
+			CONVERT_RGB_TO_LAB = generic(lookup.findVirtual(converter, "convertRGBToLab", 
+				MethodType.methodType(void.class, int[].class, double[].class)));
+			LAB_TO_RGB_VECTOR = generic(lookup.findVirtual(converter, "LabToRGB", 
+				MethodType.methodType(int.class, Vector.class)));
+			LAB_TO_RGB = generic(lookup.findVirtual(converter, "LabToRGB", 
+				MethodType.methodType(int.class, double.class, double.class, double.class)));
+			CONVERT_LAB_TO_RGB = generic(lookup.findVirtual(converter, "convertLabToRGB", 
+				MethodType.methodType(void.class, double[].class, int[].class)));
+			USE_LAB_TO_RGB_GRID = generic(lookup.findVirtual(converter, "useLabToRGBGrid", 
+				MethodType.methodType(Class.forName("LabToRGBGrid"), int.class)));
+			
+			Class<?> circleMaker = Class.forName("CircleMaker");
+			MAKE_CIRCLES = generic(lookup.findStatic(circleMaker, "makeCircles", 
+				MethodType.methodType(java.util.ArrayList.class, double.class, double.class, double.class)));
+			NEW_CIRCLE_MAKER = generic(lookup.findConstructor(circleMaker, 
+				MethodType.methodType(void.class, double.class, double.class, double.class)));
+			MAKE_LAYOUT = generic(lookup.findVirtual(circleMaker, "makeLayout", 
+				MethodType.methodType(Class.forName("CircleLayout"), long.class)));
+			LAYOUT_SIZE = generic(lookup.findVirtual(Class.forName("CircleLayout"), "size", 
+				MethodType.methodType(int.class)));
+			
+			Class<?> packer = Class.forName("PoissonDiskPacker");
+			NEW_PACKER = generic(lookup.findConstructor(packer, 
+				MethodType.methodType(void.class, double.class, double.class, double.class)));
+			PACK = generic(lookup.findVirtual(packer, "pack", 
+				MethodType.methodType(Class.forName("PoissonDiskPacker$Result"), long.class)));
+			PACKED_LAYOUT = generic(lookup.findGetter(Class.forName("PoissonDiskPacker$Result"), "layout", 
+				Class.forName("CircleLayout")));
+			
+			Class<?> staircase = Class.forName("StaircaseManager");
+			NEW_STAIRCASE = generic(lookup.findConstructor(staircase, 
+				MethodType.methodType(void.class, double.class, double.class, boolean.class)));
+			GET_NEXT_VAL = generic(lookup.findVirtual(staircase, "getNextVal", 
+				MethodType.methodType(double.class, boolean.class)));
+			THRESHOLD_REACHED = generic(lookup.findVirtual(staircase, "thresholdReached", 
+				MethodType.methodType(boolean.class)));
+			GET_THRESHOLD = generic(lookup.findVirtual(staircase, "getThreshold", 
+				MethodType.methodType(double.class)));
+		} catch(ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private Project() {
+	}
+	
+	/**
+	* Changes every experiment class in a handle's type to Object, so the benchmarks 
+	* can call the handle with invokeExact without naming those classes. Primitive 
+	* types are left alone so nothing is boxed. 
+	* 
+	* @param handle The handle as it was looked up
+	* @return The same handle with the experiment classes erased to Object 
+	*/
+	private static MethodHandle generic(MethodHandle handle) {
+		MethodType type = handle.type();
+		for(int i = 0; i < type.parameterCount(); i++) {
+			if(!type.parameterType(i).isPrimitive() && !type.parameterType(i).isArray()) {
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		if(!type.returnType().isPrimitive() && !type.returnType().isArray()) {
+			type = type.changeReturnType(Object.class);
+		}
+		return handle.asType(type);
+	}
+	
+	/**
+	* Creates a converter for the Dell S2240M profile, with the white point from 
+	* TestRGBLabConverter 
+	* 
+	* @param profileDir The directory holding the display measurement files 
+	* @return The new RGBLabConverter 
+	*/
+	static Object newConverter(String profileDir) throws Throwable {
+		Vector<Double> whitePoint = new Vector<Double>();
+		whitePoint.add(40.51067005);
+		whitePoint.add(42.62172404);
+		whitePoint.add(46.40781179);
+		Object matrixFile = profileDir + File.separator + "dell_s2240m_matrices.csv";
+		Object modelFile = profileDir + File.separator + "model.csv";
+		return (Object)NEW_CONVERTER.invokeExact(matrixFile, modelFile, (Object)whitePoint);
+	}
+}
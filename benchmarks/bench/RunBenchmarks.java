@@ -0,0 +1,29 @@
+/**
+* Runs the benchmarks with the settings we track regressions with: throughput, 
+* sampled latency (which reports percentiles such as p99), and the GC profiler
+* for the allocation rate. Any JMH command line options given are applied on top,
+* so for example "-f 1 StaircaseBenchmark" runs only the staircase benchmarks in one fork. 
+* 
+* @version 2026-10-18
+*/
+package bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class RunBenchmarks {
+	
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.mode(Mode.Throughput)
+			.mode(Mode.SampleTime)
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
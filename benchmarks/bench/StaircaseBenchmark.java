@@ -0,0 +1,75 @@
+/**
+* Benchmarks for StaircaseManager over long simulated sessions. The simulated observer
+* says yes with a probability that rises linearly with the stimulus value, so the 
+* staircase wanders around the observer's threshold and visits many levels. The 
+* responses are drawn from a fixed, seeded sequence so every run sees the same session. 
+* 
+* @version 2026-10-18
+*/
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StaircaseBenchmark {
+	
+	static final double START = 20;
+	static final double STEP = 0.5;
+	static final double OBSERVER_THRESHOLD = 10;
+	static final double OBSERVER_SPREAD = 8;
+	
+	@Param({"1000", "100000"})
+	public int sessionLength;
+	
+	private double[] uniforms;
+	// A staircase that has already run a full session, for measuring getThreshold 
+	private Object finished;
+	
+	@Setup
+	public void setup() throws Throwable {
+		SplittableRandom random = new SplittableRandom(7);
+		uniforms = new double[sessionLength];
+		for(int i = 0; i < sessionLength; i++) {
+			uniforms[i] = random.nextDouble();
+		}
+		finished = runSession();
+		// Make sure enough trials were run to reach the threshold 
+		while(!(boolean)Project.THRESHOLD_REACHED.invokeExact(finished)) {
+			double unused = (double)Project.GET_NEXT_VAL.invokeExact(finished, false);
+		}
+	}
+	
+	/**
+	* Runs a full session of getNextVal calls, ignoring the stop condition 
+	* 
+	* @return The staircase after the session 
+	*/
+	private Object runSession() throws Throwable {
+		// A correct response makes the stimulus weaker, so the value decreases 
+		Object staircase = (Object)Project.NEW_STAIRCASE.invokeExact(START, STEP, false);
+		double value = START;
+		for(int i = 0; i < sessionLength; i++) {
+			double pYes = 0.5 + (value - OBSERVER_THRESHOLD) / OBSERVER_SPREAD;
+			value = (double)Project.GET_NEXT_VAL.invokeExact(staircase, uniforms[i] < pYes);
+		}
+		return staircase;
+	}
+	
+	@Benchmark
+	public Object session() throws Throwable {
+		return runSession();
+	}
+	
+	@Benchmark
+	public double getThreshold() throws Throwable {
+		return (double)Project.GET_THRESHOLD.invokeExact(finished);
+	}
+}